@@ -1,39 +1,212 @@
 package org.jetbrains.research.codecocoon;
 
 import me.tongfei.progressbar.ProgressBar;
+import org.jetbrains.research.codecocoon.execution.ResumingSnippetExecutor;
+import org.jetbrains.research.codecocoon.execution.SnippetExecutor;
+import org.jetbrains.research.codecocoon.factory.SnippetExecutorFactory;
 import org.jetbrains.research.codecocoon.factory.TransformerFactory;
+import org.jetbrains.research.codecocoon.io.BatchIO;
 import org.jetbrains.research.codecocoon.io.ConfigLoader;
 import org.jetbrains.research.codecocoon.io.SnippetIO;
+import org.jetbrains.research.codecocoon.io.SnippetWriter;
 import org.jetbrains.research.codecocoon.factory.CacheFactory;
 import org.jetbrains.research.codecocoon.factory.LLMFactory;
 import org.jetbrains.research.codecocoon.factory.SynonymGeneratorFactory;
+import org.jetbrains.research.codecocoon.llm.CacheWarmer;
+import org.jetbrains.research.codecocoon.llm.HedgedLLM;
+import org.jetbrains.research.codecocoon.llm.OpenAI;
+import org.jetbrains.research.codecocoon.llm.PromptRecorder;
+import org.jetbrains.research.codecocoon.synonyms.LLMSynonymGenerator;
+import org.jetbrains.research.codecocoon.synonyms.MemoizingSynonymGenerator;
 import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
 import org.jetbrains.research.codecocoon.transformer.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 public class Main {
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 100;
+    private static final String RESUME_FLAG = "--resume";
+    private static final String EXPORT_BATCH_FLAG = "--export-batch";
+    private static final String IMPORT_BATCH_FLAG = "--import-batch";
+    private static final String PREWARM_FLAG = "--prewarm";
+    private static final int DEFAULT_PREWARM_WORKERS = 32;
 
     private static Map<String, Object> config;
     private static String inputFilePath;
     private static String outputFilePath;
+    private static Optional<SynonymGenerator> synonymGenerator;
+    private static Optional<PromptRecorder> promptRecorder = Optional.empty();
+    private static LLMFactory llmFactory;
+    private static final List<LLMFactory> llmFactories = new ArrayList<>();
+    private static final CacheFactory cacheFactory = new CacheFactory();
 
     public static void main(String[] args) throws IOException {
+        try {
+            run(args);
+        } finally {
+            // Stops the stub servers and other resources of the LLMs.
+            llmFactories.forEach(LLMFactory::close);
+        }
+    }
+
+    private static void run(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean resume = arguments.removeIf(arg -> arg.equals(RESUME_FLAG));
+        boolean prewarm = arguments.removeIf(arg -> arg.equals(PREWARM_FLAG));
+        Optional<List<String>> exportBatch = takeFlag(arguments, EXPORT_BATCH_FLAG, 1);
+        Optional<List<String>> importBatch = takeFlag(arguments, IMPORT_BATCH_FLAG, 2);
+        args = arguments.toArray(String[]::new);
+
         config = ConfigLoader.loadConfig(args[0]);
 
+        if (importBatch.isPresent()) {
+            importBatch(importBatch.get().get(0), importBatch.get().get(1));
+            return;
+        }
+
         setIOpaths(args, config);
 
         List<Snippet> snippets = SnippetIO.loadSnippets(inputFilePath);
 
+        if (prewarm) {
+            prewarmCache(snippets);
+            return;
+        }
+
+        if (exportBatch.isPresent()) promptRecorder = Optional.of(new PromptRecorder());
         TransformerFactory factory = createTransformerFactory();
-        Transformer compositeTransformer = factory.createCompositeTransformerFrom(config);
+        CompositeTransformer compositeTransformer = factory.createCompositeTransformerFrom(config);
 
-        transformSnippets(compositeTransformer, snippets);
+        SnippetExecutor executor = new SnippetExecutorFactory().createSnippetExecutorFrom(config);
+        if (exportBatch.isPresent()) {
+            exportBatch(executor, compositeTransformer, snippets, exportBatch.get().get(0));
+            return;
+        }
+        SnippetWriter writer;
+        if (resume) {
+            Map<String, Snippet> transformedSnippets = SnippetIO.recoverSnippets(outputFilePath);
+            executor = new ResumingSnippetExecutor(executor, transformedSnippets);
+            writer = new SnippetWriter(outputFilePath, getCheckpointInterval(), transformedSnippets);
+        } else {
+            writer = new SnippetWriter(outputFilePath, getCheckpointInterval());
+        }
+
+        boolean transformed = false;
+        try {
+            transformSnippets(executor, compositeTransformer, snippets, writer);
+            transformed = true;
+        } finally {
+            // On any failure, including errors such as running out of memory, the previous output is left in place, so
+            // that --resume can still recover everything written so far.
+            if (transformed) writer.close();
+            else writer.abort();
+        }
 
-        SnippetIO.writeSnippets(outputFilePath, snippets);
+        printChangedSnippets(compositeTransformer, snippets.size());
+        printMemoStatistics();
+        printPromptStatistics();
+        printUsageStatistics();
+        printHedgingStatistics();
+    }
+
+    /**
+     * Removes the flag and the given number of values after it from the arguments, and returns the values.
+     */
+    private static Optional<List<String>> takeFlag(List<String> arguments, String flag, int values) {
+        int index = arguments.indexOf(flag);
+        if (index < 0) return Optional.empty();
+        if (index + values >= arguments.size()) {
+            throw new IllegalArgumentException(flag + " expects " + values + " file path(s)");
+        }
+
+        List<String> flagArguments = arguments.subList(index, index + values + 1);
+        List<String> flagValues = new ArrayList<>(flagArguments.subList(1, flagArguments.size()));
+        flagArguments.clear();
+        return Optional.of(flagValues);
+    }
+
+    /**
+     * Runs all transformers without sending any prompt, and writes the prompts that are not in the cache yet as a batch
+     * file. Prompts that depend on the answer to another prompt only show up once that answer has been imported.
+     */
+    private static void exportBatch(SnippetExecutor executor, Transformer transformer, List<Snippet> snippets,
+                                    String requestsFilePath) throws IOException {
+        ProgressBar progressBar = new ProgressBar("Collecting prompts:", snippets.size());
+        progressBar.start();
+        executor.transformAll(transformer, snippets, snippet -> progressBar.step());
+        progressBar.stop();
+
+        List<String> prompts = promptRecorder.get().getPrompts();
+        Map<String, Object> llmConfig = SynonymGeneratorFactory.createLLMConfigFrom(getSynonymGeneratorConfig());
+        String model = OpenAI.apiModelName((String) llmConfig.get("model"));
+        BatchIO.writeRequests(requestsFilePath, model, LLMFactory.isJsonResponseFormat(llmConfig), prompts);
+        System.out.println("Exported " + prompts.size() + " prompts to " + requestsFilePath);
+    }
+
+    /**
+     * Fills the cache with the answers to every prompt the transformers send, without transforming anything. Prompts are
+     * collected like for a batch file, and sent concurrently. Prompts that depend on the answer to another prompt only
+     * show up once that answer is cached, so this is repeated until a pass does not answer any new prompt.
+     */
+    private static void prewarmCache(List<Snippet> snippets) throws IOException {
+        Map<String, Object> llmConfig = SynonymGeneratorFactory.createLLMConfigFrom(getSynonymGeneratorConfig());
+        String cachePath = (String) llmConfig.get("cachePath");
+        if (cachePath == null) throw new IllegalArgumentException("Warming the cache requires a cachePath for the LLM");
+
+        // The warmer stores the answers itself, so the LLM it uses must not have a cache of its own.
+        Map<String, Object> uncachedLLMConfig = new HashMap<>(llmConfig);
+        uncachedLLMConfig.remove("cachePath");
+        int workers = (int) llmConfig.getOrDefault("maxConcurrentRequests", DEFAULT_PREWARM_WORKERS);
+        LLMFactory warmingLLMFactory = createLLMFactory(Optional.empty());
+        CacheWarmer cacheWarmer = new CacheWarmer(warmingLLMFactory.createLLMFrom(uncachedLLMConfig), cacheFactory.create(cachePath), workers);
+
+        for (int pass = 1; ; pass++) {
+            promptRecorder = Optional.of(new PromptRecorder());
+            CompositeTransformer compositeTransformer = createTransformerFactory().createCompositeTransformerFrom(config);
+            SnippetExecutor executor = new SnippetExecutorFactory().createSnippetExecutorFrom(config);
+            ProgressBar collectingProgressBar = new ProgressBar("Collecting prompts (pass " + pass + "):", snippets.size());
+            collectingProgressBar.start();
+            executor.transformAll(compositeTransformer, snippets, snippet -> collectingProgressBar.step());
+            collectingProgressBar.stop();
+
+            List<String> prompts = promptRecorder.get().getPrompts();
+            ProgressBar warmingProgressBar = new ProgressBar("Warming cache (pass " + pass + "):", prompts.size());
+            warmingProgressBar.start();
+            int answered = cacheWarmer.warm(prompts, prompt -> warmingProgressBar.step());
+            warmingProgressBar.stop();
+            if (answered == 0) break;
+        }
+        System.out.println("Cache: " + cacheWarmer);
+        System.out.println("LLM usage: " + warmingLLMFactory.getUsageTracker().getTotal());
+        llmFactory = warmingLLMFactory;
+        printHedgingStatistics();
+    }
+
+    private static void importBatch(String requestsFilePath, String responsesFilePath) throws IOException {
+        String cachePath = (String) getLLMConfig().get("cachePath");
+        if (cachePath == null) throw new IllegalArgumentException("Importing a batch requires a cachePath for the LLM");
+
+        Map<String, String> answers = BatchIO.readResponses(requestsFilePath, responsesFilePath);
+        cacheFactory.create(cachePath).putAll(answers);
+        System.out.println("Imported " + answers.size() + " answers into " + cachePath);
+    }
+
+    private static Map<String, Object> getLLMConfig() {
+        return (Map<String, Object>) getSynonymGeneratorConfig().get("llm");
+    }
+
+    private static Map<String, Object> getSynonymGeneratorConfig() {
+        Map<String, Object> synonymGeneratorConfig = (Map<String, Object>) config.get("synonymGenerator");
+        if (synonymGeneratorConfig == null || !synonymGeneratorConfig.containsKey("llm")) {
+            throw new IllegalArgumentException("Batch files and cache warming require an LLM synonym generator");
+        }
+        return synonymGeneratorConfig;
     }
 
     private static void setIOpaths(String[] args, Map<String, Object> config) {
@@ -46,8 +219,15 @@ public class Main {
         }
     }
 
+    private static int getCheckpointInterval() {
+        if (!config.containsKey("execution")) return DEFAULT_CHECKPOINT_INTERVAL;
+
+        Map<String, Object> executionConfig = (Map<String, Object>) config.get("execution");
+        return (int) executionConfig.getOrDefault("checkpointInterval", DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
     private static TransformerFactory createTransformerFactory() {
-        Optional<SynonymGenerator> synonymGenerator = createSynonymGenerator();
+        synonymGenerator = createSynonymGenerator();
 
         if (synonymGenerator.isPresent()) {
             return new TransformerFactory(synonymGenerator.get());
@@ -56,20 +236,76 @@ public class Main {
     }
 
     private static Optional<SynonymGenerator> createSynonymGenerator() {
-        CacheFactory cacheFactory = new CacheFactory();
-        LLMFactory llmFactory = new LLMFactory(cacheFactory);
+        llmFactory = createLLMFactory(promptRecorder);
         SynonymGeneratorFactory synonymGeneratorFactory = new SynonymGeneratorFactory(llmFactory);
         return synonymGeneratorFactory.createSynonymGeneratorFrom(config);
     }
 
-    private static void transformSnippets(Transformer transformer, List<Snippet> snippets) throws IOException {
+    private static LLMFactory createLLMFactory(Optional<PromptRecorder> promptRecorder) {
+        LLMFactory factory = new LLMFactory(cacheFactory, promptRecorder);
+        llmFactories.add(factory);
+        return factory;
+    }
+
+    private static void transformSnippets(SnippetExecutor executor, Transformer transformer, List<Snippet> snippets,
+                                          SnippetWriter writer) throws IOException {
         ProgressBar progressBar = new ProgressBar("Transforming:", snippets.size());
         progressBar.start();
-        for (Snippet snippet : snippets) {
-            transformer.transform(snippet);
+        executor.transformAll(transformer, snippets, snippet -> {
+            writer.write(snippet);
             progressBar.step();
-            SnippetIO.writeSnippets(outputFilePath, snippets);
-        }
+        });
         progressBar.stop();
     }
+
+    private static void printMemoStatistics() {
+        if (synonymGenerator.isPresent() && synonymGenerator.get() instanceof MemoizingSynonymGenerator memoizingSynonymGenerator) {
+            System.out.println("Synonym memo: " + memoizingSynonymGenerator);
+        }
+    }
+
+    private static void printPromptStatistics() {
+        getLLMSynonymGenerator().ifPresent(llmSynonymGenerator -> {
+            System.out.println("Prompts: " + llmSynonymGenerator.getPromptStatistics());
+            System.out.println("Usable answers from " + getLLMConfig().get("model") + ": " + llmSynonymGenerator.getAnswerStatistics());
+        });
+    }
+
+    /**
+     * The usage of the LLM, in total and by the kind of identifier. Every kind is renamed by its own identifier
+     * transformer, so this is also the usage per transformer, except for batch prompts, which all of them share.
+     */
+    private static void printUsageStatistics() {
+        getLLMSynonymGenerator().ifPresent(llmSynonymGenerator -> {
+            System.out.println("LLM usage: " + llmFactory.getUsageTracker().getTotal());
+            llmSynonymGenerator.getUsageByKind().forEach((kind, usage) -> System.out.println("  " + kind + " prompts: " + usage));
+            if (llmSynonymGenerator.getBudgetFallbacks() > 0) {
+                System.out.println("The LLM budget was spent, so " + llmSynonymGenerator.getBudgetFallbacks() + " identifiers did not get a synonym from the LLM");
+            }
+        });
+    }
+
+    /**
+     * The LLM synonym generator, also when it is wrapped in a memo.
+     */
+    private static Optional<LLMSynonymGenerator> getLLMSynonymGenerator() {
+        Optional<SynonymGenerator> generator = synonymGenerator;
+        if (generator.isPresent() && generator.get() instanceof MemoizingSynonymGenerator memoizingSynonymGenerator) {
+            generator = Optional.of(memoizingSynonymGenerator.getSynonymGenerator());
+        }
+        return generator.filter(LLMSynonymGenerator.class::isInstance).map(LLMSynonymGenerator.class::cast);
+    }
+
+    private static void printHedgingStatistics() {
+        for (HedgedLLM hedgedLLM : llmFactory.getHedgedLLMs()) {
+            System.out.println("Hedging: " + hedgedLLM);
+        }
+    }
+
+    private static void printChangedSnippets(CompositeTransformer compositeTransformer, int totalSnippets) {
+        for (Transformer transformer : compositeTransformer.getTransformers()) {
+            String name = transformer.getClass().getSimpleName();
+            System.out.println(name + " changed " + transformer.getChangedSnippets() + " of " + totalSnippets + " snippets");
+        }
+    }
 }
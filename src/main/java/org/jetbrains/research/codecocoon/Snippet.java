@@ -2,12 +2,15 @@ package org.jetbrains.research.codecocoon;
 
 import com.google.googlejavaformat.java.Formatter;
 import com.google.googlejavaformat.java.FormatterException;
+import org.jetbrains.research.codecocoon.synonyms.Identifier;
 import org.jetbrains.research.codecocoon.transformer.Transformation;
+import org.jetbrains.research.codecocoon.transformer.parser.FunctionKind;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public class Snippet implements Cloneable {
     public String code;
@@ -16,10 +19,16 @@ public class Snippet implements Cloneable {
     public Map<String, String> functionMapping;
     public Map<String, String> variableMapping;
     public Map<String, String> parameterMapping;
-
+    // Not part of the output, only remembered to parse the snippet faster.
+    private transient FunctionKind functionKind;
+    // Not part of the output, the code as it was before any transformation.
+    private transient String originalCode;
+    // Not part of the output, synonyms that were generated for all identifiers of the snippet at once.
+    private transient Map<Identifier, List<String>> prefetchedSynonyms = Map.of();
 
     public Snippet(String id, String code) {
         this.code = code;
+        this.originalCode = code;
         this.id = id;
         this.transformations = new HashMap<>();
     }
@@ -32,6 +41,14 @@ public class Snippet implements Cloneable {
         }
     }
 
+    public int getTransformationCount() {
+        int count = 0;
+        for (int transformationCount : transformations.values()) {
+            count += transformationCount;
+        }
+        return count;
+    }
+
     public static List<Snippet> fromMap(Map<String, String> snippetMap) {
         List<Snippet> snippets = new ArrayList<>();
         for (String id : snippetMap.keySet()) {
@@ -48,6 +65,11 @@ public class Snippet implements Cloneable {
         return code;
     }
 
+    public String getOriginalCode() {
+        // Snippets that are read back from an output file only know their transformed code.
+        return originalCode != null ? originalCode : code;
+    }
+
     public String getId() {
         return this.id;
     }
@@ -56,6 +78,22 @@ public class Snippet implements Cloneable {
         return transformations;
     }
 
+    public FunctionKind getFunctionKind() {
+        return functionKind;
+    }
+
+    public void setFunctionKind(FunctionKind functionKind) {
+        this.functionKind = functionKind;
+    }
+
+    public Optional<List<String>> getPrefetchedSynonymCandidates(Identifier identifier) {
+        return Optional.ofNullable(prefetchedSynonyms.get(identifier));
+    }
+
+    public void setPrefetchedSynonyms(Map<Identifier, List<String>> prefetchedSynonyms) {
+        this.prefetchedSynonyms = prefetchedSynonyms;
+    }
+
     public void setFunctionMapping(Map<String, String> functionMapping) {
         this.functionMapping = functionMapping;
     }
@@ -0,0 +1,73 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.Transformer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Transforms snippets concurrently on a fixed pool of worker threads. Every snippet is transformed by exactly one worker,
+ * so the transformation counts and identifier mappings are the same as in a sequential run.
+ */
+public class ParallelSnippetExecutor implements SnippetExecutor {
+    private final int workers;
+
+    public ParallelSnippetExecutor(int workers) {
+        if (workers < 1) throw new IllegalArgumentException("Number of workers should be at least 1, but was: " + workers);
+        this.workers = workers;
+    }
+
+    @Override
+    public void transformAll(Transformer transformer, List<Snippet> snippets, SnippetListener listener) throws IOException {
+        ExecutorService executorService = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Snippet>> futures = new ArrayList<>(snippets.size());
+            for (Snippet snippet : snippets) {
+                futures.add(executorService.submit(() -> {
+                    transformer.transform(snippet);
+                    return snippet;
+                }));
+            }
+
+            // Waiting for the futures in submission order keeps the listener calls in input order, no matter which
+            // worker finishes first.
+            for (Future<Snippet> future : futures) {
+                listener.onTransformed(await(future));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    static Snippet await(Future<Snippet> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while transforming snippets", e);
+        } catch (ExecutionException e) {
+            // Rethrow the original exception, so a failing snippet behaves the same as in a sequential run.
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ParallelSnippetExecutor otherExecutor) {
+            return workers == otherExecutor.workers;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelSnippetExecutor(" + workers + ")";
+    }
+}
@@ -0,0 +1,47 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.Transformer;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Continues an interrupted run. Snippets that were already transformed are not transformed again, but handed to the
+ * listener as they were recovered from the previous output. All other snippets are transformed by the wrapped executor.
+ * The listener still receives every snippet in input order, so the final output matches an uninterrupted run.
+ */
+public class ResumingSnippetExecutor implements SnippetExecutor {
+    private final SnippetExecutor executor;
+    private final Map<String, Snippet> transformedSnippets;
+
+    public ResumingSnippetExecutor(SnippetExecutor executor, Map<String, Snippet> transformedSnippets) {
+        this.executor = executor;
+        this.transformedSnippets = transformedSnippets;
+    }
+
+    @Override
+    public void transformAll(Transformer transformer, List<Snippet> snippets, SnippetListener listener) throws IOException {
+        List<Snippet> remainingSnippets = snippets
+                .stream()
+                .filter(snippet -> !transformedSnippets.containsKey(snippet.getId()))
+                .toList();
+
+        Iterator<Snippet> inputOrder = snippets.iterator();
+        executor.transformAll(transformer, remainingSnippets, snippet -> {
+            passTransformedSnippetsUntil(snippet, inputOrder, listener);
+            listener.onTransformed(snippet);
+        });
+        passTransformedSnippetsUntil(null, inputOrder, listener);
+    }
+
+    private void passTransformedSnippetsUntil(Snippet next, Iterator<Snippet> inputOrder, SnippetListener listener) throws IOException {
+        while (inputOrder.hasNext()) {
+            Snippet snippet = inputOrder.next();
+            if (snippet == next) return;
+            listener.onTransformed(transformedSnippets.get(snippet.getId()));
+        }
+    }
+}
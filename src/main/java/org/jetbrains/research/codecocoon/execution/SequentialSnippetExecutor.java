@@ -0,0 +1,23 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.Transformer;
+
+import java.io.IOException;
+import java.util.List;
+
+public class SequentialSnippetExecutor implements SnippetExecutor {
+
+    @Override
+    public void transformAll(Transformer transformer, List<Snippet> snippets, SnippetListener listener) throws IOException {
+        for (Snippet snippet : snippets) {
+            transformer.transform(snippet);
+            listener.onTransformed(snippet);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SequentialSnippetExecutor;
+    }
+}
@@ -0,0 +1,16 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.Transformer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Decides how the snippets of a dataset are pushed through a transformer. Regardless of the strategy, the listener is
+ * notified exactly once per snippet and always in input order.
+ */
+public interface SnippetExecutor {
+
+    void transformAll(Transformer transformer, List<Snippet> snippets, SnippetListener listener) throws IOException;
+}
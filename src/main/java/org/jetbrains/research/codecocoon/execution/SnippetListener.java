@@ -0,0 +1,11 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface SnippetListener {
+
+    void onTransformed(Snippet snippet) throws IOException;
+}
@@ -0,0 +1,120 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.Transformer;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Transforms every snippet on its own virtual thread, so that many snippets can wait on an LLM at the same time without
+ * a matching number of OS threads. A snippet holds its parsed function while it waits, so at most
+ * {@code maxSnippetsInFlight} snippets are transformed at the same time. Like for {@link ParallelSnippetExecutor}, the
+ * listener is notified in input order.
+ * <p>
+ * Virtual threads are available from Java 21 onwards, while this project is built for Java 17. They are therefore
+ * looked up at runtime. On older runtimes, the fallback executor transforms the snippets instead.
+ */
+public class VirtualThreadSnippetExecutor implements SnippetExecutor {
+    private final int maxSnippetsInFlight;
+    private final SnippetExecutor fallbackExecutor;
+    private final Supplier<Optional<ExecutorService>> executorServiceSupplier;
+
+    public VirtualThreadSnippetExecutor(int maxSnippetsInFlight, SnippetExecutor fallbackExecutor) {
+        this(maxSnippetsInFlight, fallbackExecutor, VirtualThreadSnippetExecutor::createVirtualThreadExecutor);
+    }
+
+    VirtualThreadSnippetExecutor(int maxSnippetsInFlight, SnippetExecutor fallbackExecutor,
+                                 Supplier<Optional<ExecutorService>> executorServiceSupplier) {
+        if (maxSnippetsInFlight < 1) {
+            throw new IllegalArgumentException("Number of snippets in flight should be at least 1, but was: " + maxSnippetsInFlight);
+        }
+        this.maxSnippetsInFlight = maxSnippetsInFlight;
+        this.fallbackExecutor = fallbackExecutor;
+        this.executorServiceSupplier = executorServiceSupplier;
+    }
+
+    @Override
+    public void transformAll(Transformer transformer, List<Snippet> snippets, SnippetListener listener) throws IOException {
+        Optional<ExecutorService> executorService = executorServiceSupplier.get();
+        if (executorService.isEmpty()) {
+            System.err.println("Virtual threads are not supported by this Java runtime, using " + fallbackExecutor + " instead.");
+            fallbackExecutor.transformAll(transformer, snippets, listener);
+            return;
+        }
+
+        try {
+            transformAll(executorService.get(), transformer, snippets, listener);
+        } finally {
+            executorService.get().shutdownNow();
+        }
+    }
+
+    private void transformAll(ExecutorService executorService, Transformer transformer, List<Snippet> snippets,
+                              SnippetListener listener) throws IOException {
+        Semaphore snippetsInFlight = new Semaphore(maxSnippetsInFlight);
+        Deque<Future<Snippet>> futures = new ArrayDeque<>();
+        for (Snippet snippet : snippets) {
+            // Finished snippets at the front are passed on right away, so the output is written while the remaining
+            // snippets are transformed.
+            while (!futures.isEmpty() && futures.peekFirst().isDone()) {
+                listener.onTransformed(ParallelSnippetExecutor.await(futures.pollFirst()));
+            }
+
+            acquire(snippetsInFlight);
+            futures.addLast(executorService.submit(() -> {
+                try {
+                    transformer.transform(snippet);
+                    return snippet;
+                } finally {
+                    snippetsInFlight.release();
+                }
+            }));
+        }
+
+        while (!futures.isEmpty()) {
+            listener.onTransformed(ParallelSnippetExecutor.await(futures.pollFirst()));
+        }
+    }
+
+    private void acquire(Semaphore snippetsInFlight) {
+        try {
+            snippetsInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while transforming snippets", e);
+        }
+    }
+
+    private static Optional<ExecutorService> createVirtualThreadExecutor() {
+        try {
+            Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factoryMethod.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof VirtualThreadSnippetExecutor otherExecutor) {
+            return maxSnippetsInFlight == otherExecutor.maxSnippetsInFlight
+                    && fallbackExecutor.equals(otherExecutor.fallbackExecutor);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualThreadSnippetExecutor(" + maxSnippetsInFlight + ", " + fallbackExecutor + ")";
+    }
+}
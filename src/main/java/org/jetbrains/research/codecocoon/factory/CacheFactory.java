@@ -3,9 +3,14 @@ package org.jetbrains.research.codecocoon.factory;
 import org.jetbrains.research.codecocoon.io.cache.Cache;
 import org.jetbrains.research.codecocoon.io.cache.PersistentCache;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class CacheFactory {
+    // A cache file can only be opened once, so every cache is shared by all LLMs that use the same file.
+    private final Map<String, Cache> caches = new HashMap<>();
 
-    public Cache create(String fileName) {
-        return new PersistentCache(fileName);
+    public synchronized Cache create(String fileName) {
+        return caches.computeIfAbsent(fileName, PersistentCache::new);
     }
 }
@@ -1,25 +1,66 @@
 package org.jetbrains.research.codecocoon.factory;
 
 import org.jetbrains.research.codecocoon.io.cache.Cache;
+import org.jetbrains.research.codecocoon.io.cache.ReadOnlyCache;
+import org.jetbrains.research.codecocoon.llm.BudgetedLLM;
+import org.jetbrains.research.codecocoon.llm.ConcurrencyLimit;
+import org.jetbrains.research.codecocoon.llm.ConcurrencyLimitedLLM;
+import org.jetbrains.research.codecocoon.llm.HedgedLLM;
 import org.jetbrains.research.codecocoon.llm.LLM;
 import org.jetbrains.research.codecocoon.llm.LLMCacheWrapper;
 import org.jetbrains.research.codecocoon.llm.OpenAI;
+import org.jetbrains.research.codecocoon.llm.PromptRecorder;
+import org.jetbrains.research.codecocoon.llm.RateLimit;
+import org.jetbrains.research.codecocoon.llm.RateLimitedLLM;
+import org.jetbrains.research.codecocoon.llm.RequestLimit;
+import org.jetbrains.research.codecocoon.llm.StubOpenAIServer;
+import org.jetbrains.research.codecocoon.llm.TokenPrices;
+import org.jetbrains.research.codecocoon.llm.UsageTracker;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Creates LLMs from their configuration. Closing the factory stops the threads of the hedged LLMs and the stub servers
+ * it started.
+ */
+public class LLMFactory implements AutoCloseable {
+    private static final int DEFAULT_MAX_RETRIES = 5;
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+    private static final double DEFAULT_HEDGE_PERCENTILE = 95;
+    private static final long DEFAULT_INITIAL_HEDGE_DELAY_MILLIS = 1000;
 
-public class LLMFactory {
     CacheFactory cacheFactory;
+    Optional<PromptRecorder> promptRecorder;
+    private final List<HedgedLLM> hedgedLLMs = new ArrayList<>();
+    private final List<StubOpenAIServer> stubServers = new ArrayList<>();
+    private final UsageTracker usageTracker = new UsageTracker();
 
     public LLMFactory(CacheFactory cacheFactory) {
+        this(cacheFactory, Optional.empty());
+    }
+
+    /**
+     * @param promptRecorder records the prompts that are not in the cache instead of sending them to the LLM.
+     */
+    public LLMFactory(CacheFactory cacheFactory, Optional<PromptRecorder> promptRecorder) {
         this.cacheFactory = cacheFactory;
+        this.promptRecorder = promptRecorder;
     }
 
     public LLM createLLMFrom(Map<String, Object> config) {
-        String provider = (String) config.get("provider");
-        String model = (String) config.get("model");
+        if (promptRecorder.isPresent()) return createPromptRecordingLLMFrom(config);
+
         String cachePath = (String) config.get("cachePath");
+        LLM llm = createUncachedLLMFrom(config);
 
-        LLM llm = createLLMFrom(provider, model);
+        // The budget covers the hedged requests as well, and cached responses are free.
+        if (config.containsKey("maxTokens") || config.containsKey("maxCost")) {
+            llm = createBudgetedLLMFrom(llm, config);
+        }
 
         if(cachePath != null) {
             Cache cache = cacheFactory.create(cachePath);
@@ -29,11 +70,181 @@ public class LLMFactory {
         return llm;
     }
 
-    private LLM createLLMFrom(String provider, String model) {
+    /**
+     * The hedged LLMs that were created, so that their statistics can be reported.
+     */
+    public List<HedgedLLM> getHedgedLLMs() {
+        return hedgedLLMs;
+    }
+
+    /**
+     * The usage of all LLMs this factory created, so that the usage and cost of a run can be reported.
+     */
+    public UsageTracker getUsageTracker() {
+        return usageTracker;
+    }
+
+    private LLM createUncachedLLMFrom(Map<String, Object> config) {
+        String provider = (String) config.get("provider");
+        String model = (String) config.get("model");
+        Optional<ConcurrencyLimit> concurrencyLimit = createConcurrencyLimitFrom(config);
+        Optional<RateLimit> rateLimit = createRateLimitFrom(config);
+
+        LLM llm = createLLMFrom(provider, model, config);
+
+        // Only the request itself is hedged, so that waiting for the limits does not count as a slow response.
+        if (config.containsKey("hedge")) {
+            HedgedLLM hedgedLLM = createHedgedLLMFrom(llm, config, getLimits(concurrencyLimit, rateLimit));
+            hedgedLLMs.add(hedgedLLM);
+            llm = hedgedLLM;
+        }
+
+        // Requests that hit the cache do not count towards the limit, so the limit is applied below the cache. It is also
+        // applied below the rate limit, so that requests waiting for the rate limit or for a retry do not hold a permit.
+        if (concurrencyLimit.isPresent()) {
+            llm = new ConcurrencyLimitedLLM(llm, concurrencyLimit.get());
+        }
+
+        if (rateLimit.isPresent() || config.containsKey("maxRetries")) {
+            llm = createRateLimitedLLMFrom(llm, rateLimit.orElse(new RateLimit(Optional.empty(), Optional.empty(), 0)), config);
+        }
+        return llm;
+    }
+
+    /**
+     * The hedge is configured like the primary LLM, but is never cached on its own and its requests are not retried. It
+     * can use the same provider, in which case it sends the request over a second connection and counts towards the
+     * limits of the primary. Otherwise, it only counts towards the limits in its own configuration.
+     */
+    private HedgedLLM createHedgedLLMFrom(LLM primary, Map<String, Object> config, List<RequestLimit> primaryLimits) {
+        Map<String, Object> hedgeConfig = (Map<String, Object>) config.get("hedge");
+        LLM hedge = createLLMFrom((String) hedgeConfig.get("provider"), (String) hedgeConfig.get("model"), hedgeConfig);
+        List<RequestLimit> hedgeLimits = isSameProvider(config, hedgeConfig)
+                ? primaryLimits
+                : getLimits(createConcurrencyLimitFrom(hedgeConfig), createRateLimitFrom(hedgeConfig));
+
+        double percentile = ((Number) hedgeConfig.getOrDefault("percentile", DEFAULT_HEDGE_PERCENTILE)).doubleValue();
+        long initialDelayMillis = ((Number) hedgeConfig.getOrDefault("initialDelayMillis", DEFAULT_INITIAL_HEDGE_DELAY_MILLIS)).longValue();
+        return new HedgedLLM(primary, hedge, hedgeLimits, percentile, initialDelayMillis);
+    }
+
+    private boolean isSameProvider(Map<String, Object> config, Map<String, Object> hedgeConfig) {
+        return Objects.equals(config.get("provider"), hedgeConfig.get("provider"))
+                && Objects.equals(config.get("baseUrl"), hedgeConfig.get("baseUrl"));
+    }
+
+    private List<RequestLimit> getLimits(Optional<ConcurrencyLimit> concurrencyLimit, Optional<RateLimit> rateLimit) {
+        List<RequestLimit> limits = new ArrayList<>();
+        concurrencyLimit.ifPresent(limits::add);
+        rateLimit.ifPresent(limits::add);
+        return limits;
+    }
+
+    private Optional<ConcurrencyLimit> createConcurrencyLimitFrom(Map<String, Object> config) {
+        return Optional.ofNullable((Integer) config.get("maxConcurrentRequests")).map(ConcurrencyLimit::new);
+    }
+
+    private Optional<RateLimit> createRateLimitFrom(Map<String, Object> config) {
+        if (!config.containsKey("requestsPerMinute") && !config.containsKey("tokensPerMinute")) return Optional.empty();
+
+        Optional<Long> requestsPerMinute = Optional.ofNullable((Number) config.get("requestsPerMinute")).map(Number::longValue);
+        Optional<Long> tokensPerMinute = Optional.ofNullable((Number) config.get("tokensPerMinute")).map(Number::longValue);
+        return Optional.of(new RateLimit(requestsPerMinute, tokensPerMinute, getReservedCompletionTokens(config)));
+    }
+
+    private LLM createPromptRecordingLLMFrom(Map<String, Object> config) {
+        String cachePath = (String) config.get("cachePath");
+        if (cachePath == null) return promptRecorder.get();
+
+        // The recorder does not give real answers, so they must not end up in the cache.
+        Cache cache = new ReadOnlyCache(cacheFactory.create(cachePath));
+        return new LLMCacheWrapper(promptRecorder.get(), cache);
+    }
+
+    private BudgetedLLM createBudgetedLLMFrom(LLM llm, Map<String, Object> config) {
+        Optional<Long> maxTokens = Optional.ofNullable((Number) config.get("maxTokens")).map(Number::longValue);
+        Optional<Double> maxCost = Optional.ofNullable((Number) config.get("maxCost")).map(Number::doubleValue);
+        long reservedCompletionTokens = getReservedCompletionTokens(config);
+
+        // Every query may send a request to the primary and, if configured, to the hedge.
+        List<TokenPrices> requestPrices = new ArrayList<>();
+        requestPrices.add(createTokenPricesFrom((String) config.get("model"), config));
+        if (config.containsKey("hedge")) {
+            Map<String, Object> hedgeConfig = (Map<String, Object>) config.get("hedge");
+            requestPrices.add(createTokenPricesFrom((String) hedgeConfig.get("model"), hedgeConfig));
+        }
+        return new BudgetedLLM(llm, usageTracker, maxTokens, maxCost, requestPrices, reservedCompletionTokens);
+    }
+
+    /**
+     * The completion tokens that the budget and the rate limit reserve for every request, since the actual number is
+     * only known once the request is answered.
+     */
+    private long getReservedCompletionTokens(Map<String, Object> config) {
+        return ((Number) config.getOrDefault("reservedCompletionTokens", BudgetedLLM.DEFAULT_RESERVED_COMPLETION_TOKENS)).longValue();
+    }
+
+    private RateLimitedLLM createRateLimitedLLMFrom(LLM llm, RateLimit rateLimit, Map<String, Object> config) {
+        int maxRetries = ((Number) config.getOrDefault("maxRetries", DEFAULT_MAX_RETRIES)).intValue();
+        long initialBackoffMillis = ((Number) config.getOrDefault("initialBackoffMillis", DEFAULT_INITIAL_BACKOFF_MILLIS)).longValue();
+
+        return new RateLimitedLLM(llm, rateLimit, maxRetries, initialBackoffMillis);
+    }
+
+    private LLM createLLMFrom(String provider, String model, Map<String, Object> config) {
         switch (provider) {
             case "openai":
-                return new OpenAI(model);
+                return new OpenAI(model, Optional.ofNullable((String) config.get("baseUrl")), isJsonResponseFormat(config),
+                        createTokenPricesFrom(model, config), usageTracker);
+            case "stub":
+                return createStubLLMFrom(model, config);
+        }
+        throw new IllegalArgumentException("Unknown LLM provider: " + provider);
+    }
+
+    /**
+     * Starts an OpenAI-compatible server in this process, which answers every prompt with the configured answer, or with
+     * the original name of the identifier by default.
+     */
+    private LLM createStubLLMFrom(String model, Map<String, Object> config) {
+        String answer = (String) config.get("answer");
+        long latencyMillis = ((Number) config.getOrDefault("latencyMillis", 0)).longValue();
+
+        StubOpenAIServer server = new StubOpenAIServer(answer != null ? prompt -> answer : StubOpenAIServer::keepOriginalName, latencyMillis);
+        server.start();
+        stubServers.add(server);
+        return new OpenAI(model, Optional.of(server.getBaseUrl()), isJsonResponseFormat(config),
+                createTokenPricesFrom(model, config), usageTracker);
+    }
+
+    @Override
+    public void close() {
+        hedgedLLMs.forEach(HedgedLLM::close);
+        stubServers.forEach(StubOpenAIServer::close);
+        stubServers.clear();
+    }
+
+    /**
+     * The prices in US dollars per million tokens, which default to the list prices of the model if they are known.
+     */
+    private TokenPrices createTokenPricesFrom(String model, Map<String, Object> config) {
+        TokenPrices defaultPrices = TokenPrices.forModel(model);
+        double promptTokenPrice = ((Number) config.getOrDefault("promptTokenPrice", defaultPrices.promptTokenPrice())).doubleValue();
+        double completionTokenPrice = ((Number) config.getOrDefault("completionTokenPrice", defaultPrices.completionTokenPrice())).doubleValue();
+        return new TokenPrices(promptTokenPrice, completionTokenPrice);
+    }
+
+    /**
+     * Whether the LLM with the given configuration asks for JSON answers.
+     */
+    public static boolean isJsonResponseFormat(Map<String, Object> config) {
+        String responseFormat = (String) config.getOrDefault("responseFormat", "text");
+        switch (responseFormat) {
+            case "text":
+                return false;
+            case "json":
+                return true;
         }
-        throw new IllegalArgumentException("Unknown LLM provider: " + model);
+        throw new IllegalArgumentException("Unknown response format: " + responseFormat);
     }
 }
@@ -0,0 +1,60 @@
+package org.jetbrains.research.codecocoon.factory;
+
+import org.jetbrains.research.codecocoon.execution.ParallelSnippetExecutor;
+import org.jetbrains.research.codecocoon.execution.SequentialSnippetExecutor;
+import org.jetbrains.research.codecocoon.execution.SnippetExecutor;
+import org.jetbrains.research.codecocoon.execution.VirtualThreadSnippetExecutor;
+
+import java.util.Map;
+
+public class SnippetExecutorFactory {
+    public static final int DEFAULT_MAX_SNIPPETS_IN_FLIGHT = 1000;
+    private static final String LLM_WORKERS = "llm";
+
+    public SnippetExecutor createSnippetExecutorFrom(Map<String, Object> config) {
+        if (!config.containsKey("execution")) return new SequentialSnippetExecutor();
+
+        Map<String, Object> executionConfig = (Map<String, Object>) config.get("execution");
+        SnippetExecutor platformExecutor = createPlatformExecutorFrom(config, executionConfig);
+        String threads = (String) executionConfig.getOrDefault("threads", "platform");
+
+        switch (threads) {
+            case "platform":
+                return platformExecutor;
+            case "virtual":
+                int maxSnippetsInFlight = (int) executionConfig.getOrDefault("maxSnippetsInFlight", DEFAULT_MAX_SNIPPETS_IN_FLIGHT);
+                // The workers are only used if the runtime does not support virtual threads.
+                return new VirtualThreadSnippetExecutor(maxSnippetsInFlight, platformExecutor);
+        }
+        throw new IllegalArgumentException("Unknown kind of threads: " + threads);
+    }
+
+    private SnippetExecutor createPlatformExecutorFrom(Map<String, Object> config, Map<String, Object> executionConfig) {
+        Object workersConfig = executionConfig.getOrDefault("workers", 1);
+        int workers;
+        if (workersConfig instanceof Integer number) {
+            workers = number;
+        } else if (LLM_WORKERS.equals(workersConfig)) {
+            workers = getLLMWorkers(config);
+        } else {
+            throw new IllegalArgumentException("execution.workers should be a number or \"" + LLM_WORKERS + "\", but was: " + workersConfig);
+        }
+
+        if (workers == 1) return new SequentialSnippetExecutor();
+        return new ParallelSnippetExecutor(workers);
+    }
+
+    /**
+     * Enough workers for every request the LLM may have in flight, plus one per core to transform the other snippets in
+     * the meantime. Snippets that wait for the rate limit or a retry hold a worker as well, so with rate limits, fewer
+     * requests may be in flight than the LLM allows.
+     */
+    private int getLLMWorkers(Map<String, Object> config) {
+        Map<String, Object> synonymGeneratorConfig = (Map<String, Object>) config.get("synonymGenerator");
+        Map<String, Object> llmConfig = synonymGeneratorConfig == null ? null : (Map<String, Object>) synonymGeneratorConfig.get("llm");
+        if (llmConfig == null || !llmConfig.containsKey("maxConcurrentRequests")) {
+            throw new IllegalArgumentException("Workers for the LLM require maxConcurrentRequests in the LLM configuration");
+        }
+        return (int) llmConfig.get("maxConcurrentRequests") + Runtime.getRuntime().availableProcessors();
+    }
+}
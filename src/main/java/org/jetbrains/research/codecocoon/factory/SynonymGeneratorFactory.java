@@ -1,10 +1,13 @@
 package org.jetbrains.research.codecocoon.factory;
 
 import org.jetbrains.research.codecocoon.llm.LLM;
+import org.jetbrains.research.codecocoon.synonyms.ContextSlicer;
 import org.jetbrains.research.codecocoon.synonyms.LLMSynonymGenerator;
 import org.jetbrains.research.codecocoon.synonyms.LexicalSynonymGenerator;
+import org.jetbrains.research.codecocoon.synonyms.MemoizingSynonymGenerator;
 import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -19,8 +22,12 @@ public class SynonymGeneratorFactory {
         if (!config.containsKey("synonymGenerator")) return Optional.empty();
 
         Map<String, Object> synonymGeneratorConfig = (Map<String, Object>) config.get("synonymGenerator");
+        SynonymGenerator synonymGenerator = createFrom(synonymGeneratorConfig);
 
-        return Optional.of(createFrom(synonymGeneratorConfig));
+        if (synonymGeneratorConfig.containsKey("memoSize")) {
+            synonymGenerator = new MemoizingSynonymGenerator(synonymGenerator, (Integer) synonymGeneratorConfig.get("memoSize"));
+        }
+        return Optional.of(synonymGenerator);
     }
 
     private SynonymGenerator createFrom(Map<String, Object> config) {
@@ -30,23 +37,49 @@ public class SynonymGeneratorFactory {
             case "llmSynonymGenerator":
                 return createLLMSynonymGeneratorFrom(config);
             case "lexicalSynonymGenerator":
-                return createLexicalSynonymGenerator();
+                return createLexicalSynonymGeneratorFrom(config);
         }
         throw new IllegalArgumentException("Unknown Synonym Generator: " + synonymGeneratorName);
     }
 
     private LLMSynonymGenerator createLLMSynonymGeneratorFrom(Map<String, Object> config) {
-        Map<String, Object> llmConfig = (Map<String, Object>) config.get("llm");
-        LLM llm = llmFactory.createLLMFrom(llmConfig);
-        return new LLMSynonymGenerator(llm);
+        boolean structured = (Boolean) config.getOrDefault("structured", false);
+        LLM llm = llmFactory.createLLMFrom(createLLMConfigFrom(config));
+        Optional<ContextSlicer> contextSlicer = Optional.ofNullable((Integer) config.get("contextTokenBudget")).map(ContextSlicer::new);
+        int candidates = (Integer) config.getOrDefault("candidates", 1);
+        int repairAttempts = (Integer) config.getOrDefault("repairAttempts", LLMSynonymGenerator.DEFAULT_REPAIR_ATTEMPTS);
+        Optional<SynonymGenerator> budgetFallback = createBudgetFallbackFrom(config);
+        return new LLMSynonymGenerator(llm, contextSlicer, candidates, structured, repairAttempts,
+                llmFactory.getUsageTracker(), budgetFallback);
     }
 
-
-    private LexicalSynonymGenerator createLexicalSynonymGenerator() {
-        try {
-            return new LexicalSynonymGenerator();
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Problem with Synonym Generator: " + e);
+    private Optional<SynonymGenerator> createBudgetFallbackFrom(Map<String, Object> config) {
+        String budgetExceeded = (String) config.getOrDefault("budgetExceeded", "cacheOnly");
+        switch (budgetExceeded) {
+            case "cacheOnly":
+                return Optional.empty();
+            case "lexical":
+                return Optional.of(createLexicalSynonymGeneratorFrom(Map.of()));
         }
+        throw new IllegalArgumentException("Unknown budget fallback: " + budgetExceeded);
+    }
+
+    /**
+     * The configuration of the LLM of an LLM synonym generator, including the options the synonym generator implies.
+     */
+    public static Map<String, Object> createLLMConfigFrom(Map<String, Object> synonymGeneratorConfig) {
+        Map<String, Object> llmConfig = (Map<String, Object>) synonymGeneratorConfig.get("llm");
+        if (!(Boolean) synonymGeneratorConfig.getOrDefault("structured", false)) return llmConfig;
+
+        // Structured prompts ask for JSON, so the LLM is asked to answer with JSON as well, unless configured otherwise.
+        Map<String, Object> structuredLLMConfig = new HashMap<>(llmConfig);
+        structuredLLMConfig.putIfAbsent("responseFormat", "json");
+        return structuredLLMConfig;
+    }
+
+    private LexicalSynonymGenerator createLexicalSynonymGeneratorFrom(Map<String, Object> config) {
+        boolean splitIdentifiers = (Boolean) config.getOrDefault("splitIdentifiers", false);
+        int maxMemoizedTokens = (Integer) config.getOrDefault("maxMemoizedTokens", LexicalSynonymGenerator.DEFAULT_MAX_MEMOIZED_TOKENS);
+        return new LexicalSynonymGenerator(splitIdentifiers, maxMemoizedTokens);
     }
 }
@@ -5,7 +5,10 @@ import org.jetbrains.research.codecocoon.transformer.*;
 import org.jetbrains.research.codecocoon.transformer.fortowhile.ForToWhileTransformer;
 import org.jetbrains.research.codecocoon.transformer.identifiers.FunctionNameTransformer;
 import org.jetbrains.research.codecocoon.transformer.identifiers.ParameterNameTransformer;
+import org.jetbrains.research.codecocoon.transformer.identifiers.SynonymContext;
 import org.jetbrains.research.codecocoon.transformer.identifiers.VariableNameTransformer;
+import org.jetbrains.research.codecocoon.transformer.parser.ParserProfile;
+import org.jetbrains.research.codecocoon.transformer.parser.SnippetParser;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,23 +23,54 @@ public class TransformerFactory {
         this.synonymGenerator = synonymGenerator;
     }
 
-    public Transformer createCompositeTransformerFrom(Map<String, Object> config) {
+    public CompositeTransformer createCompositeTransformerFrom(Map<String, Object> config) {
         List<Map<String, Object>> transformerConfigs = (List<Map<String, Object>>) config.get("transformers");
 
         if(transformerConfigs == null) {
             throw new RuntimeException("No transformers configured");
         }
 
+        SynonymContext synonymContext = createSynonymContextFrom(config);
         List<Transformer> transformers = new ArrayList<>();
         for (Map<String, Object> transformerConfig : transformerConfigs) {
-            Transformer newTransformer = createSimpleTransformerFrom(transformerConfig);
+            Transformer newTransformer = createSimpleTransformerFrom(transformerConfig, synonymContext);
             transformers.add(newTransformer);
         }
 
-        return new CompositeTransformer(transformers);
+        return new CompositeTransformer(transformers, createParserFrom(config), batchesSynonyms(config));
+    }
+
+    private boolean batchesSynonyms(Map<String, Object> config) {
+        Map<String, Object> synonymGeneratorConfig = (Map<String, Object>) config.getOrDefault("synonymGenerator", Map.of());
+        return (boolean) synonymGeneratorConfig.getOrDefault("batch", false);
+    }
+
+    private SynonymContext createSynonymContextFrom(Map<String, Object> config) {
+        Map<String, Object> synonymGeneratorConfig = (Map<String, Object>) config.getOrDefault("synonymGenerator", Map.of());
+        String contextName = (String) synonymGeneratorConfig.getOrDefault("context", "current");
+
+        return switch (contextName) {
+            case "current" -> SynonymContext.CURRENT;
+            case "original" -> SynonymContext.ORIGINAL;
+            default -> throw new RuntimeException("Unknown synonym context: " + contextName);
+        };
+    }
+
+    private SnippetParser createParserFrom(Map<String, Object> config) {
+        String profileName = (String) config.getOrDefault("parser", "default");
+
+        return switch (profileName) {
+            case "default" -> SnippetParser.DEFAULT;
+            case "lean" -> new SnippetParser(ParserProfile.LEAN);
+            default -> throw new RuntimeException("Unknown parser profile: " + profileName);
+        };
     }
 
     public Transformer createSimpleTransformerFrom(Map<String, Object> config) {
+        return createSimpleTransformerFrom(config, SynonymContext.CURRENT);
+    }
+
+    private Transformer createSimpleTransformerFrom(Map<String, Object> config, SynonymContext synonymContext) {
         String transformerName = (String) config.get("name");
 
         return switch (transformerName) {
@@ -46,26 +80,26 @@ public class TransformerFactory {
             case "swapRelationOperandsTransformer" -> new SwapRelationOperandsTransformer();
             case "expandUnaryIncrementTransformer" -> new ExpandUnaryIncrementTransformer();
             case "swapEqualsOperandsTransformer" -> new SwapEqualsOperandsTransformer();
-            case "variableNameTransformer" -> createVariableNameTransformer();
-            case "functionNameTransformer" -> createFunctionNameTransformer();
-            case "parameterNameTransformer" -> createParameterNameTransformer();
+            case "variableNameTransformer" -> createVariableNameTransformer(synonymContext);
+            case "functionNameTransformer" -> createFunctionNameTransformer(synonymContext);
+            case "parameterNameTransformer" -> createParameterNameTransformer(synonymContext);
             default -> throw new RuntimeException("Unknown transformer: " + transformerName);
         };
     }
 
-    private VariableNameTransformer createVariableNameTransformer() {
+    private VariableNameTransformer createVariableNameTransformer(SynonymContext synonymContext) {
         if (this.synonymGenerator == null) throw new RuntimeException("No synonym generator configured");
-        return new VariableNameTransformer(synonymGenerator);
+        return new VariableNameTransformer(synonymGenerator, synonymContext);
     }
 
-    private FunctionNameTransformer createFunctionNameTransformer() {
+    private FunctionNameTransformer createFunctionNameTransformer(SynonymContext synonymContext) {
         if (this.synonymGenerator == null) throw new RuntimeException("No synonym generator configured");
-        return new FunctionNameTransformer(synonymGenerator);
+        return new FunctionNameTransformer(synonymGenerator, synonymContext);
     }
 
-    private ParameterNameTransformer createParameterNameTransformer() {
+    private ParameterNameTransformer createParameterNameTransformer(SynonymContext synonymContext) {
         if (this.synonymGenerator == null) throw new RuntimeException("No synonym generator configured");
-        return new ParameterNameTransformer(synonymGenerator);
+        return new ParameterNameTransformer(synonymGenerator, synonymContext);
     }
 
 }
@@ -0,0 +1,116 @@
+package org.jetbrains.research.codecocoon.io;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the JSONL files of the OpenAI Batch API. Every line of a request file is a chat completion request
+ * for one prompt, and every line of a response file is the response to the request with the same custom id.
+ */
+public class BatchIO {
+    private static final String CUSTOM_ID_PREFIX = "prompt-";
+
+    /**
+     * @param jsonResponses whether the requests ask for JSON answers, like the LLM of a normal run does, so that the
+     *                      imported answers are the same as the ones that run would get.
+     */
+    public static void writeRequests(String requestsFilePath, String model, boolean jsonResponses, List<String> prompts) throws IOException {
+        Gson gson = new Gson();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(requestsFilePath))) {
+            for (int i = 0; i < prompts.size(); i++) {
+                writer.write(gson.toJson(createRequest(CUSTOM_ID_PREFIX + i, model, jsonResponses, prompts.get(i))));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads the prompts of a request file by custom id.
+     */
+    public static Map<String, String> readRequests(String requestsFilePath) throws IOException {
+        Map<String, String> prompts = new LinkedHashMap<>();
+        for (JsonObject request : readLines(requestsFilePath)) {
+            JsonArray messages = request.getAsJsonObject("body").getAsJsonArray("messages");
+            prompts.put(request.get("custom_id").getAsString(), messages.get(0).getAsJsonObject().get("content").getAsString());
+        }
+        return prompts;
+    }
+
+    /**
+     * Reads the answers of a response file by prompt. Requests that failed, and responses without an answer, are left
+     * out, so that their prompts are sent again in a normal run.
+     */
+    public static Map<String, String> readResponses(String requestsFilePath, String responsesFilePath) throws IOException {
+        Map<String, String> prompts = readRequests(requestsFilePath);
+        Map<String, String> answers = new HashMap<>();
+        for (JsonObject line : readLines(responsesFilePath)) {
+            String prompt = prompts.get(line.get("custom_id").getAsString());
+            if (prompt == null || !line.has("response") || !line.get("response").isJsonObject()) continue;
+
+            JsonObject response = line.getAsJsonObject("response");
+            if (response.get("status_code").getAsInt() != 200) continue;
+            try {
+                JsonObject message = response.getAsJsonObject("body").getAsJsonArray("choices")
+                        .get(0).getAsJsonObject().getAsJsonObject("message");
+                JsonElement content = message.get("content");
+                if (content != null && content.isJsonPrimitive()) answers.put(prompt, content.getAsString());
+            } catch (ClassCastException | IndexOutOfBoundsException | NullPointerException e) {
+                // The response has an unexpected format, so the prompt is left for a normal run.
+            }
+        }
+        return answers;
+    }
+
+    private static JsonObject createRequest(String customId, String model, boolean jsonResponses, String prompt) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "user");
+        message.addProperty("content", prompt);
+        JsonArray messages = new JsonArray();
+        messages.add(message);
+
+        JsonObject body = new JsonObject();
+        body.addProperty("model", model);
+        body.add("messages", messages);
+        if (jsonResponses) {
+            JsonObject responseFormat = new JsonObject();
+            responseFormat.addProperty("type", "json_object");
+            body.add("response_format", responseFormat);
+        }
+
+        JsonObject request = new JsonObject();
+        request.addProperty("custom_id", customId);
+        request.addProperty("method", "POST");
+        request.addProperty("url", "/v1/chat/completions");
+        request.add("body", body);
+        return request;
+    }
+
+    private static List<JsonObject> readLines(String filePath) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            return reader.lines()
+                    .filter(line -> !line.isBlank())
+                    .map(line -> {
+                        try {
+                            return JsonParser.parseString(line).getAsJsonObject();
+                        } catch (JsonParseException | IllegalStateException e) {
+                            throw new IllegalArgumentException("Invalid line in " + filePath + ": " + line, e);
+                        }
+                    })
+                    .toList();
+        }
+    }
+}
@@ -2,14 +2,20 @@ package org.jetbrains.research.codecocoon.io;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 import org.jetbrains.research.codecocoon.Snippet;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 
@@ -33,4 +39,71 @@ public class SnippetIO {
             gson.toJson(snippets, writer);
         }
     }
+
+    /**
+     * Reads the transformed snippets that an interrupted run left behind, both in the output file and in the partial
+     * file that {@link SnippetWriter} was still writing to. A snippet in the partial file replaces the one with the same
+     * id in the output file. The closing bracket and a partially written last snippet are allowed to be missing, but a
+     * file that cannot be read up to its end is reported, since the snippets after the broken one would be lost.
+     * Returns the snippets by id, in the order they appear in the files.
+     */
+    public static Map<String, Snippet> recoverSnippets(String outputFilePath) throws IOException {
+        Map<String, Snippet> recoveredSnippets = new LinkedHashMap<>();
+        recoverSnippetsFrom(outputFilePath, recoveredSnippets);
+        recoverSnippetsFrom(SnippetWriter.getPartialFilePath(outputFilePath), recoveredSnippets);
+        return recoveredSnippets;
+    }
+
+    private static void recoverSnippetsFrom(String filePath, Map<String, Snippet> recoveredSnippets) throws IOException {
+        if (!new File(filePath).exists()) return;
+
+        Gson gson = new Gson();
+        EndTrackingReader fileReader = new EndTrackingReader(new FileReader(filePath));
+        int snippets = 0;
+        try (JsonReader reader = new JsonReader(fileReader)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Snippet snippet = gson.fromJson(reader, Snippet.class);
+                recoveredSnippets.put(snippet.getId(), snippet);
+                snippets++;
+            }
+        } catch (JsonParseException | IOException e) {
+            // A run that was interrupted leaves the file cut off in the middle of the last snippet, so reading fails only
+            // once the whole file has been read. Failing any earlier means that the file is broken.
+            if (!fileReader.reachedEnd()) {
+                throw new IOException(filePath + " cannot be read after the first " + snippets + " snippets, "
+                        + "fix or remove it before resuming", e);
+            }
+        }
+    }
+
+    /**
+     * Remembers whether the end of the file has been reached. The JSON reader only reads further once it has parsed
+     * everything it read before, so this tells whether a parse failure happened at the end of the file.
+     */
+    private static class EndTrackingReader extends FilterReader {
+        private boolean reachedEnd = false;
+
+        EndTrackingReader(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read < 0) reachedEnd = true;
+            return read;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read < 0) reachedEnd = true;
+            return read;
+        }
+
+        boolean reachedEnd() {
+            return reachedEnd;
+        }
+    }
 }
@@ -0,0 +1,131 @@
+package org.jetbrains.research.codecocoon.io;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.research.codecocoon.Snippet;
+
+import java.io.Closeable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Appends transformed snippets to the output file one at a time, instead of rewriting the whole dataset after every
+ * snippet. The result is the same JSON array that {@link SnippetIO#writeSnippets} produces.
+ * <p>
+ * Snippets are collected in memory and written to disk in batches. A batch always ends after a complete snippet, so if
+ * the run crashes, the file holds a valid JSON array up to the last flushed batch, apart from the closing bracket.
+ * <p>
+ * The snippets are written to a partial file next to the output file, which only replaces the output file once it is
+ * closed. A run that resumes from recovered snippets starts a fresh temporary file instead, and only moves it over the
+ * partial file at the first checkpoint at which it holds every recovered snippet again. Until then, the files of the
+ * interrupted run stay untouched, so a resumed run that is killed as well does not lose anything it had recovered.
+ * <p>
+ * A run that does not resume removes the output and the partial file of any earlier run first, so that a later resume
+ * cannot mix in snippets from a run with a different configuration.
+ */
+public class SnippetWriter implements Closeable {
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Path outputFile;
+    private final Path partialFile;
+    private final Path temporaryFile;
+    private final Map<String, Snippet> unwrittenSnippets;
+    private Writer fileWriter;
+    private final StringWriter batch = new StringWriter();
+    private final JsonWriter jsonWriter;
+    private final int batchSize;
+    private int snippetsInBatch = 0;
+    private boolean writingPartialFile = false;
+
+    /**
+     * A writer for a fresh run, which discards the output of earlier runs.
+     */
+    public SnippetWriter(String outputFilePath, int batchSize) throws IOException {
+        this(outputFilePath, batchSize, Map.of());
+        Files.deleteIfExists(outputFile);
+    }
+
+    /**
+     * A writer for a resumed run, which keeps the files of the interrupted run until it has written the recovered
+     * snippets again.
+     */
+    public SnippetWriter(String outputFilePath, int batchSize, Map<String, Snippet> recoveredSnippets) throws IOException {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size should be at least 1, but was: " + batchSize);
+        this.batchSize = batchSize;
+        this.outputFile = Path.of(outputFilePath);
+        this.partialFile = Path.of(getPartialFilePath(outputFilePath));
+        this.temporaryFile = Path.of(getPartialFilePath(outputFilePath) + ".tmp");
+        this.unwrittenSnippets = new LinkedHashMap<>(recoveredSnippets);
+        this.fileWriter = new FileWriter(temporaryFile.toFile());
+        this.jsonWriter = gson.newJsonWriter(batch);
+        jsonWriter.beginArray();
+        flush();
+    }
+
+    public void write(Snippet snippet) throws IOException {
+        gson.toJson(snippet, Snippet.class, jsonWriter);
+        snippetsInBatch++;
+        boolean lastRecoveredSnippet = unwrittenSnippets.remove(snippet.getId()) != null && unwrittenSnippets.isEmpty();
+        // Once the last recovered snippet is written, the partial file is replaced right away, instead of only at the
+        // end of the batch.
+        if (snippetsInBatch >= batchSize || lastRecoveredSnippet) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the batch to disk. If the temporary file holds every recovered snippet, it atomically replaces the partial
+     * file, and the next batches are appended to the partial file directly.
+     */
+    public void flush() throws IOException {
+        fileWriter.write(batch.toString());
+        fileWriter.flush();
+        batch.getBuffer().setLength(0);
+        snippetsInBatch = 0;
+        if (!writingPartialFile && unwrittenSnippets.isEmpty()) {
+            fileWriter.close();
+            Files.move(temporaryFile, partialFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            fileWriter = new FileWriter(partialFile.toFile(), true);
+            writingPartialFile = true;
+        }
+    }
+
+    /**
+     * Completes the array and atomically replaces the output file with it. Recovered snippets that were not written
+     * again are no longer part of the input, so they are left out.
+     */
+    @Override
+    public void close() throws IOException {
+        jsonWriter.endArray();
+        unwrittenSnippets.clear();
+        flush();
+        fileWriter.close();
+        Files.move(partialFile, outputFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes the snippets collected so far to the partial file, but leaves the output file as it is. Used when the run
+     * fails, so that a resumed run can recover the snippets from both files. Recovered snippets that were not written
+     * again yet are appended as well, since the order of the partial file does not matter for recovering it.
+     */
+    public void abort() throws IOException {
+        for (Snippet snippet : unwrittenSnippets.values()) gson.toJson(snippet, Snippet.class, jsonWriter);
+        unwrittenSnippets.clear();
+        flush();
+        fileWriter.close();
+    }
+
+    /**
+     * The file the snippets are written to until the writer is closed.
+     */
+    public static String getPartialFilePath(String outputFilePath) {
+        return outputFilePath + ".partial";
+    }
+}
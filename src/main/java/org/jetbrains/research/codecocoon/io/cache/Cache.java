@@ -1,5 +1,7 @@
 package org.jetbrains.research.codecocoon.io.cache;
 
+import java.util.Map;
+
 public interface Cache {
 
     boolean containsKey(String prompt);
@@ -7,4 +9,8 @@ public interface Cache {
     String get(String prompt);
 
     void put(String prompt, String value);
+
+    default void putAll(Map<String, String> values) {
+        values.forEach(this::put);
+    }
 }
@@ -31,4 +31,13 @@ public class PersistentCache implements Cache{
         cache.put(prompt, value);
         db.commit();
     }
+
+    /**
+     * Commits all values at once, which is a lot faster than committing each of them.
+     */
+    @Override
+    public void putAll(Map<String, String> values) {
+        cache.putAll(values);
+        db.commit();
+    }
 }
@@ -0,0 +1,26 @@
+package org.jetbrains.research.codecocoon.io.cache;
+
+/**
+ * Reads from a cache, but ignores everything that is put into it.
+ */
+public class ReadOnlyCache implements Cache {
+    private final Cache cache;
+
+    public ReadOnlyCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean containsKey(String prompt) {
+        return cache.containsKey(prompt);
+    }
+
+    @Override
+    public String get(String prompt) {
+        return cache.get(prompt);
+    }
+
+    @Override
+    public void put(String prompt, String value) {
+    }
+}
@@ -0,0 +1,10 @@
+package org.jetbrains.research.codecocoon.llm;
+
+/**
+ * Thrown instead of sending a request once the budget of the run is spent.
+ */
+public class BudgetExceededException extends RuntimeException {
+    public BudgetExceededException(String message) {
+        super(message);
+    }
+}
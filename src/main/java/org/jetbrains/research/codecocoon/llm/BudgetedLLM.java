@@ -0,0 +1,96 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stops sending requests to an LLM before the run would use more than the maximum number of tokens or cost more than the
+ * maximum amount. The usage of a request is only known afterwards, so every query reserves an estimate of its usage
+ * before it is sent, and holds it until it is answered. A query is only sent if the budget covers the usage so far, the
+ * reservations of all queries that are waiting for the limits or in flight, and its own reservation.
+ * <p>
+ * The estimate assumes the prompt tokens of {@link Tokens#estimate} and a fixed number of completion tokens for every
+ * request the query may send, including a hedged request. The budget holds as long as the requests do not use more than
+ * that.
+ */
+public class BudgetedLLM implements LLM {
+    public static final long DEFAULT_RESERVED_COMPLETION_TOKENS = 500;
+
+    private final LLM llm;
+    private final UsageTracker usageTracker;
+    private final Optional<Long> maxTokens;
+    private final Optional<Double> maxCost;
+    private final List<TokenPrices> requestPrices;
+    private final long reservedCompletionTokens;
+    private Usage reserved = Usage.NONE;
+
+    /**
+     * @param requestPrices            the prices of every request a query may send, for example to the primary and the
+     *                                 hedge.
+     * @param reservedCompletionTokens the number of completion tokens that is reserved for every request.
+     */
+    public BudgetedLLM(LLM llm, UsageTracker usageTracker, Optional<Long> maxTokens, Optional<Double> maxCost,
+                       List<TokenPrices> requestPrices, long reservedCompletionTokens) {
+        this.llm = llm;
+        this.usageTracker = usageTracker;
+        this.maxTokens = maxTokens;
+        this.maxCost = maxCost;
+        this.requestPrices = requestPrices;
+        this.reservedCompletionTokens = reservedCompletionTokens;
+    }
+
+    @Override
+    public String query(String prompt) {
+        Usage estimate = estimate(prompt);
+        reserve(estimate);
+        try {
+            return llm.query(prompt);
+        } finally {
+            // The actual usage has been recorded by now, so the reservation is no longer needed.
+            release(estimate);
+        }
+    }
+
+    /**
+     * Whether the usage so far has reached the budget, regardless of the queries in flight.
+     */
+    public boolean isExceeded() {
+        Usage total = usageTracker.getTotal();
+        return maxTokens.map(max -> total.totalTokens() >= max).orElse(false)
+                || maxCost.map(max -> total.cost() >= max).orElse(false);
+    }
+
+    Usage estimate(String prompt) {
+        long promptTokens = Tokens.estimate(prompt);
+        Usage estimate = Usage.NONE;
+        for (TokenPrices prices : requestPrices) {
+            estimate = estimate.plus(new Usage(1, promptTokens, reservedCompletionTokens, prices.cost(promptTokens, reservedCompletionTokens)));
+        }
+        return estimate;
+    }
+
+    private synchronized void reserve(Usage estimate) {
+        Usage total = usageTracker.getTotal();
+        // A query that was answered but not released yet briefly counts twice, which only errs on the safe side.
+        Usage committed = total.plus(reserved).plus(estimate);
+        if (maxTokens.map(max -> committed.totalTokens() > max).orElse(false)
+                || maxCost.map(max -> committed.cost() > max).orElse(false)) {
+            throw new BudgetExceededException("The LLM budget is spent: " + total + ", with " + reserved.requests() + " requests in flight");
+        }
+        reserved = reserved.plus(estimate);
+    }
+
+    private synchronized void release(Usage estimate) {
+        reserved = reserved.minus(estimate);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof BudgetedLLM otherLLM) {
+            return llm.equals(otherLLM.llm) && maxTokens.equals(otherLLM.maxTokens) && maxCost.equals(otherLLM.maxCost)
+                    && requestPrices.equals(otherLLM.requestPrices)
+                    && reservedCompletionTokens == otherLLM.reservedCompletionTokens;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,104 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.jetbrains.research.codecocoon.io.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Sends prompts to an LLM concurrently and stores the answers in the cache, so that a later run is answered entirely
+ * from the cache. Every answer is stored as soon as it arrives, so an interrupted pass can be resumed: prompts that are
+ * already in the cache are skipped.
+ */
+public class CacheWarmer {
+    private final LLM llm;
+    private final Cache cache;
+    private final int workers;
+    private final AtomicInteger answered = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param llm the LLM without a cache of its own, since the answers are stored in the given cache.
+     */
+    public CacheWarmer(LLM llm, Cache cache, int workers) {
+        if (workers < 1) throw new IllegalArgumentException("Workers should be at least 1, but was: " + workers);
+        this.llm = llm;
+        this.cache = cache;
+        this.workers = workers;
+    }
+
+    /**
+     * Answers all prompts that are not in the cache yet. A prompt that fails is reported and left out of the cache, so
+     * that it is tried again by the next pass.
+     *
+     * @return the number of prompts that were answered by the LLM.
+     */
+    public int warm(List<String> prompts, Consumer<String> listener) {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (String prompt : prompts) {
+                results.add(executor.submit(() -> warm(prompt, listener)));
+            }
+
+            int answeredPrompts = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) answeredPrompts++;
+            }
+            return answeredPrompts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LLMUnavailableException("Interrupted while warming the cache");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean warm(String prompt, Consumer<String> listener) {
+        try {
+            if (cache.containsKey(prompt)) {
+                skipped.incrementAndGet();
+                return false;
+            }
+            cache.put(prompt, llm.query(prompt));
+            answered.incrementAndGet();
+            return true;
+        } catch (BudgetExceededException e) {
+            // The remaining prompts are left for a run with a new budget.
+            failed.incrementAndGet();
+            return false;
+        } catch (RuntimeException e) {
+            System.err.println("Could not warm the cache for a prompt: " + e.getMessage());
+            failed.incrementAndGet();
+            return false;
+        } finally {
+            listener.accept(prompt);
+        }
+    }
+
+    public int getAnswered() {
+        return answered.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public String toString() {
+        return answered.get() + " prompts answered, " + skipped.get() + " already cached, " + failed.get() + " failed";
+    }
+}
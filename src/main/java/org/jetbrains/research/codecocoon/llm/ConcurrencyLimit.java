@@ -0,0 +1,49 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * The permits for the requests that are sent to an LLM at the same time.
+ */
+public class ConcurrencyLimit implements RequestLimit {
+    private final int maxConcurrentRequests;
+    private final Semaphore permits;
+
+    public ConcurrencyLimit(int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("Maximum number of concurrent requests should be at least 1, but was: " + maxConcurrentRequests);
+        }
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    /**
+     * Waits until a permit is available and takes it.
+     */
+    void acquire() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LLMUnavailableException("Interrupted while waiting for the LLM");
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(String prompt) {
+        return permits.tryAcquire();
+    }
+
+    @Override
+    public void release() {
+        permits.release();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ConcurrencyLimit otherLimit) {
+            return maxConcurrentRequests == otherLimit.maxConcurrentRequests;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,40 @@
+package org.jetbrains.research.codecocoon.llm;
+
+/**
+ * Limits the number of requests that are sent to an LLM at the same time. Callers that exceed the limit wait until one
+ * of the running requests is done.
+ */
+public class ConcurrencyLimitedLLM implements LLM {
+    private final LLM llm;
+    private final ConcurrencyLimit limit;
+
+    public ConcurrencyLimitedLLM(LLM llm, int maxConcurrentRequests) {
+        this(llm, new ConcurrencyLimit(maxConcurrentRequests));
+    }
+
+    /**
+     * @param limit the permits, which can be shared with the hedged requests to the same LLM.
+     */
+    public ConcurrencyLimitedLLM(LLM llm, ConcurrencyLimit limit) {
+        this.llm = llm;
+        this.limit = limit;
+    }
+
+    @Override
+    public String query(String prompt) {
+        limit.acquire();
+        try {
+            return llm.query(prompt);
+        } finally {
+            limit.release();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ConcurrencyLimitedLLM otherLLM) {
+            return llm.equals(otherLLM.llm) && limit.equals(otherLLM.limit);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,282 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends every prompt to the primary LLM, and sends it to the hedge LLM as well if the primary has not answered after a
+ * percentile of its recent response times. The first non-empty answer is returned and the other request is cancelled.
+ * A few slow responses then no longer dominate the duration of a run, at the cost of a few extra requests.
+ * <p>
+ * If the primary fails before the delay, the hedge is sent right away.
+ * <p>
+ * Only the requests themselves are hedged, so this sits below the rate and concurrency limits, and the response times
+ * do not include the time spent waiting for them. The hedge is only sent if its limits have room for it right away,
+ * which for a hedge to the same LLM are the limits of the primary. When they do not, the LLM is busy already, and an
+ * extra request would only make that worse.
+ * <p>
+ * Cancelling the losing request does not abort a blocking HTTP call, so the losing request keeps running until the LLM
+ * answers it. The capacity the hedge took is therefore only given back once both requests are done, so that a losing
+ * primary request still counts towards the limits of a hedge to the same LLM. For a hedge to another LLM, the requests
+ * in flight to the primary can exceed its concurrency limit by the number of losing primary requests.
+ */
+public class HedgedLLM implements LLM, AutoCloseable {
+    private static final int LATENCY_WINDOW = 1000;
+    // The delay is only based on the percentile once there are enough response times for it to be meaningful.
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private final LLM primary;
+    private final LLM hedge;
+    private final List<RequestLimit> hedgeLimits;
+    private final double percentile;
+    private final long initialDelayMillis;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "hedged-llm");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencySamples = 0;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong limitedHedges = new AtomicLong();
+    private final AtomicLong primaryWins = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param percentile         the percentile of the response times of the primary after which the hedge is sent.
+     * @param initialDelayMillis the delay before the hedge is sent, until enough response times are known.
+     */
+    public HedgedLLM(LLM primary, LLM hedge, double percentile, long initialDelayMillis) {
+        this(primary, hedge, List.of(), percentile, initialDelayMillis);
+    }
+
+    /**
+     * @param hedgeLimits the limits the hedge takes capacity from before it is sent.
+     */
+    public HedgedLLM(LLM primary, LLM hedge, List<RequestLimit> hedgeLimits, double percentile, long initialDelayMillis) {
+        if (percentile <= 0 || percentile > 100) throw new IllegalArgumentException("Percentile should be between 0 and 100, but was: " + percentile);
+        if (initialDelayMillis < 0) throw new IllegalArgumentException("Initial delay should not be negative, but was: " + initialDelayMillis);
+        this.primary = primary;
+        this.hedge = hedge;
+        this.hedgeLimits = hedgeLimits;
+        this.percentile = percentile;
+        this.initialDelayMillis = initialDelayMillis;
+    }
+
+    @Override
+    public String query(String prompt) {
+        requests.incrementAndGet();
+        long start = System.nanoTime();
+        BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        PrimaryRequest primaryRequest = new PrimaryRequest();
+        primaryRequest.send(prompt, outcomes);
+        HedgeRequest hedgeRequest = null;
+        try {
+            Outcome outcome = outcomes.poll(getHedgeDelayNanos(), TimeUnit.NANOSECONDS);
+            if (outcome != null && outcome.isValid()) {
+                recordLatency(System.nanoTime() - start);
+                primaryWins.incrementAndGet();
+                return outcome.answer;
+            }
+
+            if (!tryAcquireHedgeLimits(prompt)) {
+                limitedHedges.incrementAndGet();
+                if (outcome == null) {
+                    outcome = outcomes.take();
+                    if (outcome.failure == null) recordLatency(System.nanoTime() - start);
+                }
+                if (outcome.isValid()) primaryWins.incrementAndGet();
+                if (outcome.failure != null) throw outcome.failure;
+                return outcome.answer;
+            }
+
+            hedgedRequests.incrementAndGet();
+            hedgeRequest = new HedgeRequest(primaryRequest.done);
+            hedgeRequest.send(prompt, outcomes);
+            int pending = outcome == null ? 2 : 1;
+            while (pending > 0) {
+                Outcome next = outcomes.take();
+                pending--;
+                if (next.isValid()) {
+                    // Once the hedge has won, the response time of the primary is at least the time until now.
+                    recordLatency(System.nanoTime() - start);
+                    (next.isHedge ? hedgeWins : primaryWins).incrementAndGet();
+                    return next.answer;
+                }
+                // An empty answer is still an answer, so it is kept over a failure, and the first failure over a later one.
+                if (outcome == null || (outcome.failure != null && next.failure == null)) outcome = next;
+            }
+
+            if (outcome.failure != null) throw outcome.failure;
+            return outcome.answer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LLMUnavailableException("Interrupted while waiting for the LLM", e);
+        } finally {
+            primaryRequest.cancel();
+            if (hedgeRequest != null) hedgeRequest.cancel();
+        }
+    }
+
+    private boolean tryAcquireHedgeLimits(String prompt) {
+        for (int i = 0; i < hedgeLimits.size(); i++) {
+            if (!hedgeLimits.get(i).tryAcquire(prompt)) {
+                hedgeLimits.subList(0, i).forEach(RequestLimit::release);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Outcome send(LLM llm, String prompt, boolean isHedge) {
+        try {
+            return new Outcome(llm.query(prompt), null, isHedge);
+        } catch (RuntimeException e) {
+            return new Outcome(null, e, isHedge);
+        }
+    }
+
+    /**
+     * The request to the primary, which tells when it is done, also when it is cancelled before it started.
+     */
+    private class PrimaryRequest {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private Future<?> future;
+
+        void send(String prompt, BlockingQueue<Outcome> outcomes) {
+            future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) return;
+                try {
+                    outcomes.add(HedgedLLM.this.send(primary, prompt, false));
+                } finally {
+                    done.complete(null);
+                }
+            });
+        }
+
+        void cancel() {
+            future.cancel(true);
+            if (claimed.compareAndSet(false, true)) done.complete(null);
+        }
+    }
+
+    /**
+     * The request to the hedge, which gives back the capacity it took from the limits exactly once, also when it is
+     * cancelled before it started. The capacity is only given back once the primary request is done as well.
+     */
+    private class HedgeRequest {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Void> primaryDone;
+        private Future<?> future;
+
+        HedgeRequest(CompletableFuture<Void> primaryDone) {
+            this.primaryDone = primaryDone;
+        }
+
+        void send(String prompt, BlockingQueue<Outcome> outcomes) {
+            future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) return;
+                try {
+                    outcomes.add(HedgedLLM.this.send(hedge, prompt, true));
+                } finally {
+                    releaseLimits();
+                }
+            });
+        }
+
+        void cancel() {
+            future.cancel(true);
+            if (claimed.compareAndSet(false, true)) releaseLimits();
+        }
+
+        private void releaseLimits() {
+            primaryDone.thenRun(() -> hedgeLimits.forEach(RequestLimit::release));
+        }
+    }
+
+    long getHedgeDelayNanos() {
+        synchronized (latencies) {
+            if (latencySamples < MIN_LATENCY_SAMPLES) return TimeUnit.MILLISECONDS.toNanos(initialDelayMillis);
+
+            long[] window = Arrays.copyOf(latencies, Math.min(latencySamples, LATENCY_WINDOW));
+            Arrays.sort(window);
+            int index = (int) Math.ceil(percentile / 100 * window.length) - 1;
+            return window[Math.max(index, 0)];
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        synchronized (latencies) {
+            latencies[latencySamples % LATENCY_WINDOW] = nanos;
+            latencySamples++;
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getHedgedRequests() {
+        return hedgedRequests.get();
+    }
+
+    /**
+     * The number of requests that were not hedged because the limits of the hedge had no room for it.
+     */
+    public long getLimitedHedges() {
+        return limitedHedges.get();
+    }
+
+    public long getPrimaryWins() {
+        return primaryWins.get();
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Stops the threads of the requests. Requests that are still running are interrupted.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, %d hedged, %d not hedged because of the limits, answered by the primary %d times and by the hedge %d times",
+                getRequests(), getHedgedRequests(), getLimitedHedges(), getPrimaryWins(), getHedgeWins());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof HedgedLLM otherLLM) {
+            return primary.equals(otherLLM.primary)
+                    && hedge.equals(otherLLM.hedge)
+                    && hedgeLimits.equals(otherLLM.hedgeLimits)
+                    && percentile == otherLLM.percentile
+                    && initialDelayMillis == otherLLM.initialDelayMillis;
+        }
+        return false;
+    }
+
+    private record Outcome(String answer, RuntimeException failure, boolean isHedge) {
+        boolean isValid() {
+            return failure == null && answer != null && !answer.isBlank();
+        }
+    }
+}
@@ -2,9 +2,19 @@ package org.jetbrains.research.codecocoon.llm;
 
 import org.jetbrains.research.codecocoon.io.cache.Cache;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the responses of an LLM. Concurrent queries for the same prompt are coalesced: only the first one is sent to
+ * the LLM, and the others wait for its response.
+ */
 public class LLMCacheWrapper implements LLM {
     private final LLM llm;
     private final Cache cache;
+    private final Map<String, CompletableFuture<String>> inFlightQueries = new ConcurrentHashMap<>();
 
     public LLMCacheWrapper(LLM llm, Cache cache) {
         this.llm = llm;
@@ -13,12 +23,37 @@ public class LLMCacheWrapper implements LLM {
 
     @Override
     public String query(String prompt) {
-        if (cache.containsKey(prompt)) {
-            return cache.get(prompt);
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CompletableFuture<String> inFlightResponse = inFlightQueries.putIfAbsent(prompt, response);
+        if (inFlightResponse != null) return await(inFlightResponse);
+
+        // The cache is only checked after registering the query, so a query that finished in the meantime is always
+        // found in the cache.
+        try {
+            String result;
+            if (cache.containsKey(prompt)) {
+                result = cache.get(prompt);
+            } else {
+                result = llm.query(prompt);
+                cache.put(prompt, result);
+            }
+            response.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            response.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightQueries.remove(prompt, response);
+        }
+    }
+
+    private String await(CompletableFuture<String> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw e;
         }
-        String response = llm.query(prompt);
-        cache.put(prompt, response);
-        return response;
     }
 
     @Override
@@ -4,4 +4,8 @@ public class LLMUnavailableException extends RuntimeException {
     public LLMUnavailableException(String s) {
         super(s);
     }
+
+    public LLMUnavailableException(String s, Throwable cause) {
+        super(s, cause);
+    }
 }
@@ -2,30 +2,123 @@ package org.jetbrains.research.codecocoon.llm;
 
 import com.openai.client.OpenAIClient;
 import com.openai.client.okhttp.OpenAIOkHttpClient;
+import com.openai.errors.InternalServerException;
+import com.openai.errors.OpenAIIoException;
+import com.openai.errors.RateLimitException;
 import com.openai.models.ChatModel;
+import com.openai.models.ResponseFormatJsonObject;
 import com.openai.models.chat.completions.ChatCompletion;
 import com.openai.models.chat.completions.ChatCompletionCreateParams;
+import com.openai.models.completions.CompletionUsage;
+
+import java.util.Optional;
 
 public class OpenAI implements LLM{
-    private final OpenAIClient client = OpenAIOkHttpClient.fromEnv();
+    private static final String DEFAULT_MODEL = "ChatGPT4o-mini";
+    // Local inference servers usually ignore the API key, but the client requires one.
+    private static final String LOCAL_API_KEY = "local";
+
+    private OpenAIClient client;
     private final ChatModel chatModel;
+    private final Optional<String> baseUrl;
+    private final boolean jsonResponses;
+    private final TokenPrices tokenPrices;
+    private final UsageTracker usageTracker;
 
     public OpenAI(String model) {
+        this(model, Optional.empty());
+    }
+
+    /**
+     * @param baseUrl the endpoint of an OpenAI-compatible server, for example a local inference server. Any model name
+     *                is then passed on to the server as is.
+     */
+    public OpenAI(String model, Optional<String> baseUrl) {
+        this(model, baseUrl, false);
+    }
+
+    /**
+     * @param jsonResponses makes the model answer with a JSON object, so that its answers can always be parsed.
+     */
+    public OpenAI(String model, Optional<String> baseUrl, boolean jsonResponses) {
+        this(model, baseUrl, jsonResponses, TokenPrices.forModel(model), new UsageTracker());
+    }
+
+    /**
+     * @param usageTracker receives the tokens of every response as reported by the API, and their cost.
+     */
+    public OpenAI(String model, Optional<String> baseUrl, boolean jsonResponses, TokenPrices tokenPrices, UsageTracker usageTracker) {
         super();
-        if (model.equals("ChatGPT4o-mini")) {
-            this.chatModel = ChatModel.GPT_4O_MINI;
-        } else {
+        if (!model.equals(DEFAULT_MODEL) && baseUrl.isEmpty()) {
             throw new LLMUnavailableException("Unsupported model: " + model);
         }
+        this.chatModel = toChatModel(model);
+        this.baseUrl = baseUrl;
+        this.jsonResponses = jsonResponses;
+        this.tokenPrices = tokenPrices;
+        this.usageTracker = usageTracker;
+    }
+
+    /**
+     * The name of the model as the API expects it, for example in a batch file.
+     */
+    public static String apiModelName(String model) {
+        return toChatModel(model).asString();
+    }
+
+    private static ChatModel toChatModel(String model) {
+        return model.equals(DEFAULT_MODEL) ? ChatModel.GPT_4O_MINI : ChatModel.of(model);
+    }
+
+    /**
+     * The client is only created for the first request, so that a run that is answered entirely from the cache does not
+     * need an API key.
+     */
+    private synchronized OpenAIClient getClient() {
+        if (client == null) client = createClient(baseUrl);
+        return client;
+    }
+
+    private static OpenAIClient createClient(Optional<String> baseUrl) {
+        OpenAIOkHttpClient.Builder builder = OpenAIOkHttpClient.builder().fromEnv();
+        if (baseUrl.isPresent()) {
+            builder.baseUrl(baseUrl.get());
+            if (System.getenv("OPENAI_API_KEY") == null) builder.apiKey(LOCAL_API_KEY);
+        }
+        return builder.build();
     }
 
     @Override
     public String query(String prompt) {
-        ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
+        ChatCompletionCreateParams.Builder params = ChatCompletionCreateParams.builder()
                 .addUserMessage(prompt)
-                .model(this.chatModel)
-                .build();
-        ChatCompletion chatCompletion = client.chat().completions().create(params);
-        return chatCompletion.choices().get(0).message().content().get();
+                .model(this.chatModel);
+        if (jsonResponses) params.responseFormat(ResponseFormatJsonObject.builder().build());
+        try {
+            ChatCompletion chatCompletion = getClient().chat().completions().create(params.build());
+            recordUsage(prompt, chatCompletion);
+            return chatCompletion.choices().get(0).message().content().get();
+        } catch (RateLimitException | InternalServerException | OpenAIIoException e) {
+            // These errors are temporary, so the request can be tried again later.
+            throw new LLMUnavailableException("OpenAI is temporarily unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    private void recordUsage(String prompt, ChatCompletion chatCompletion) {
+        // Servers that do not report their usage still count the request.
+        long promptTokens = chatCompletion.usage().map(CompletionUsage::promptTokens).orElse(0L);
+        long completionTokens = chatCompletion.usage().map(CompletionUsage::completionTokens).orElse(0L);
+        double cost = tokenPrices.cost(promptTokens, completionTokens);
+        usageTracker.record(prompt, new Usage(1, promptTokens, completionTokens, cost));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof OpenAI otherOpenAI) {
+            return chatModel.equals(otherOpenAI.chatModel) && baseUrl.equals(otherOpenAI.baseUrl)
+                    && jsonResponses == otherOpenAI.jsonResponses
+                    && tokenPrices.equals(otherOpenAI.tokenPrices);
+        }
+        return false;
     }
 }
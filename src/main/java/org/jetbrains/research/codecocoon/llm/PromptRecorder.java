@@ -0,0 +1,31 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records the prompts instead of sending them, so that they can be submitted as a batch job. Every prompt is answered
+ * as if the identifiers keep their original names, which keeps the transformers going without renaming anything.
+ */
+public class PromptRecorder implements LLM {
+    private final Set<String> prompts = new LinkedHashSet<>();
+
+    @Override
+    public String query(String prompt) {
+        synchronized (prompts) {
+            prompts.add(prompt);
+        }
+        return StubOpenAIServer.keepOriginalName(prompt);
+    }
+
+    /**
+     * The distinct prompts, in the order they were first recorded.
+     */
+    public List<String> getPrompts() {
+        synchronized (prompts) {
+            return new ArrayList<>(prompts);
+        }
+    }
+}
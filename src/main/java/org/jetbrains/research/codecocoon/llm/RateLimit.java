@@ -0,0 +1,75 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import java.util.Optional;
+
+/**
+ * The number of requests and tokens that can be sent to an LLM per minute. Providers count the completion tokens of a
+ * request towards the limit as well, so every request reserves the estimated tokens of its prompt plus a fixed number of
+ * completion tokens, since the actual numbers are only known after the request.
+ */
+public class RateLimit implements RequestLimit {
+    private final Optional<TokenBucket> requestBucket;
+    private final Optional<TokenBucket> tokenBucket;
+    private final long reservedCompletionTokens;
+
+    /**
+     * @param requestsPerMinute        the maximum number of requests per minute, or empty for no limit.
+     * @param tokensPerMinute          the maximum number of prompt and completion tokens per minute, or empty for no
+     *                                 limit.
+     * @param reservedCompletionTokens the number of completion tokens that is reserved for every request.
+     */
+    public RateLimit(Optional<Long> requestsPerMinute, Optional<Long> tokensPerMinute, long reservedCompletionTokens) {
+        this(requestsPerMinute.map(TokenBucket::new).orElse(null), tokensPerMinute.map(TokenBucket::new).orElse(null),
+                reservedCompletionTokens);
+    }
+
+    private RateLimit(TokenBucket requestBucket, TokenBucket tokenBucket, long reservedCompletionTokens) {
+        this.requestBucket = Optional.ofNullable(requestBucket);
+        this.tokenBucket = Optional.ofNullable(tokenBucket);
+        this.reservedCompletionTokens = reservedCompletionTokens;
+    }
+
+    static RateLimit withBuckets(Optional<TokenBucket> requestBucket, Optional<TokenBucket> tokenBucket, long reservedCompletionTokens) {
+        return new RateLimit(requestBucket.orElse(null), tokenBucket.orElse(null), reservedCompletionTokens);
+    }
+
+    /**
+     * Reserves a request with the prompt, and returns how many nanoseconds the caller has to wait before sending it.
+     */
+    long reserve(String prompt) {
+        long requestWait = requestBucket.map(bucket -> bucket.reserve(1)).orElse(0L);
+        long tokenWait = tokenBucket.map(bucket -> bucket.reserve(estimate(prompt))).orElse(0L);
+        return Math.max(requestWait, tokenWait);
+    }
+
+    @Override
+    public boolean tryAcquire(String prompt) {
+        if (requestBucket.isPresent() && !requestBucket.get().tryReserve(1)) return false;
+        if (tokenBucket.isPresent() && !tokenBucket.get().tryReserve(estimate(prompt))) {
+            requestBucket.ifPresent(bucket -> bucket.refund(1));
+            return false;
+        }
+        return true;
+    }
+
+    private long estimate(String prompt) {
+        return Tokens.estimate(prompt) + reservedCompletionTokens;
+    }
+
+    /**
+     * Does nothing, since a request that was sent counts towards the limit for the rest of the minute.
+     */
+    @Override
+    public void release() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof RateLimit otherLimit) {
+            return requestBucket.map(TokenBucket::getTokensPerMinute).equals(otherLimit.requestBucket.map(TokenBucket::getTokensPerMinute))
+                    && tokenBucket.map(TokenBucket::getTokensPerMinute).equals(otherLimit.tokenBucket.map(TokenBucket::getTokensPerMinute))
+                    && reservedCompletionTokens == otherLimit.reservedCompletionTokens;
+        }
+        return false;
+    }
+}
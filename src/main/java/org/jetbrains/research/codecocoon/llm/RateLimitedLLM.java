@@ -0,0 +1,96 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the requests to an LLM within a number of requests and tokens per minute, and retries requests that fail
+ * because the LLM is temporarily unavailable. Retries wait exponentially longer after every attempt, with full jitter
+ * so that concurrent callers do not retry at the same moment.
+ */
+public class RateLimitedLLM implements LLM {
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private final LLM llm;
+    private final RateLimit rateLimit;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final Sleeper sleeper;
+
+    /**
+     * @param requestsPerMinute        the maximum number of requests per minute, or empty for no limit.
+     * @param tokensPerMinute          the maximum number of prompt and completion tokens per minute, or empty for no
+     *                                 limit.
+     * @param reservedCompletionTokens the number of completion tokens that is reserved for every request.
+     */
+    public RateLimitedLLM(LLM llm, Optional<Long> requestsPerMinute, Optional<Long> tokensPerMinute, long reservedCompletionTokens,
+                          int maxRetries, long initialBackoffMillis) {
+        this(llm, new RateLimit(requestsPerMinute, tokensPerMinute, reservedCompletionTokens), maxRetries, initialBackoffMillis);
+    }
+
+    /**
+     * @param rateLimit the requests and tokens per minute, which can be shared with the hedged requests to the same LLM.
+     */
+    public RateLimitedLLM(LLM llm, RateLimit rateLimit, int maxRetries, long initialBackoffMillis) {
+        this(llm, rateLimit, maxRetries, initialBackoffMillis, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    RateLimitedLLM(LLM llm, Optional<TokenBucket> requestBucket, Optional<TokenBucket> tokenBucket, long reservedCompletionTokens,
+                   int maxRetries, long initialBackoffMillis, Sleeper sleeper) {
+        this(llm, RateLimit.withBuckets(requestBucket, tokenBucket, reservedCompletionTokens), maxRetries, initialBackoffMillis, sleeper);
+    }
+
+    RateLimitedLLM(LLM llm, RateLimit rateLimit, int maxRetries, long initialBackoffMillis, Sleeper sleeper) {
+        if (maxRetries < 0) throw new IllegalArgumentException("Number of retries should not be negative, but was: " + maxRetries);
+        this.llm = llm;
+        this.rateLimit = rateLimit;
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.sleeper = sleeper;
+    }
+
+    @Override
+    public String query(String prompt) {
+        for (int attempt = 0; ; attempt++) {
+            sleep(rateLimit.reserve(prompt));
+            try {
+                return llm.query(prompt);
+            } catch (LLMUnavailableException e) {
+                if (attempt >= maxRetries) throw e;
+                sleep(TimeUnit.MILLISECONDS.toNanos(backoffMillis(attempt)));
+            }
+        }
+    }
+
+    long backoffMillis(int attempt) {
+        long maxBackoff = Math.min(MAX_BACKOFF_MILLIS, initialBackoffMillis << Math.min(attempt, 30));
+        return ThreadLocalRandom.current().nextLong(maxBackoff + 1);
+    }
+
+    private void sleep(long nanos) {
+        if (nanos <= 0) return;
+        try {
+            sleeper.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LLMUnavailableException("Interrupted while waiting for the LLM", e);
+        }
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof RateLimitedLLM otherLLM) {
+            return llm.equals(otherLLM.llm)
+                    && rateLimit.equals(otherLLM.rateLimit)
+                    && maxRetries == otherLLM.maxRetries
+                    && initialBackoffMillis == otherLLM.initialBackoffMillis;
+        }
+        return false;
+    }
+}
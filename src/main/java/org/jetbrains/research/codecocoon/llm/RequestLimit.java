@@ -0,0 +1,19 @@
+package org.jetbrains.research.codecocoon.llm;
+
+/**
+ * A limit on the requests that are sent to an LLM. Extra requests that are not worth waiting for, like hedged requests,
+ * take capacity from it only if it is available right away.
+ */
+public interface RequestLimit {
+
+    /**
+     * Takes the capacity for a request with the prompt if it is available right away, and returns whether it was.
+     */
+    boolean tryAcquire(String prompt);
+
+    /**
+     * Gives back the capacity that was taken for a request once the request is done.
+     */
+    void release();
+
+}
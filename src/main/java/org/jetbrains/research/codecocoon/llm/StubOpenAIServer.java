@@ -0,0 +1,208 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An OpenAI-compatible chat completions server that runs in the same process and answers every prompt with the given
+ * responder. It only listens on the loopback address, so the whole LLM path can be run and load-tested without network
+ * access.
+ */
+public class StubOpenAIServer implements AutoCloseable {
+    private static final Pattern QUOTED_NAME = Pattern.compile("\"(\\w+)\"");
+    private static final Pattern BATCH_IDENTIFIER = Pattern.compile("^- (\\w+) \"(\\w+)\"$", Pattern.MULTILINE);
+    private static final String STRUCTURED_PROMPT = "Answer with only a JSON object";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Function<String, String> responder;
+    private final long latencyMillis;
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param latencyMillis the time the server waits before it answers, to simulate an inference server.
+     */
+    public StubOpenAIServer(Function<String, String> responder, long latencyMillis) {
+        if (latencyMillis < 0) throw new IllegalArgumentException("Latency should not be negative, but was: " + latencyMillis);
+        this.responder = responder;
+        this.latencyMillis = latencyMillis;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-openai-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", this::handle);
+    }
+
+    /**
+     * Answers with the first quoted name in the prompt, or for a batch prompt with a JSON array that keeps the names of
+     * all listed identifiers. Structured prompts are answered with the JSON object they ask for. The transformers then
+     * rename nothing, but still go through the whole LLM path.
+     */
+    public static String keepOriginalName(String prompt) {
+        boolean structured = prompt.contains(STRUCTURED_PROMPT);
+        Matcher batchIdentifier = BATCH_IDENTIFIER.matcher(prompt);
+        JsonArray synonyms = new JsonArray();
+        while (batchIdentifier.find()) {
+            JsonObject synonym = new JsonObject();
+            synonym.addProperty("type", batchIdentifier.group(1));
+            synonym.addProperty("name", batchIdentifier.group(2));
+            if (structured) {
+                synonym.add("synonyms", singletonArray(batchIdentifier.group(2)));
+            } else {
+                synonym.addProperty("synonym", batchIdentifier.group(2));
+            }
+            synonyms.add(synonym);
+        }
+        if (!synonyms.isEmpty() && structured) {
+            JsonObject answer = new JsonObject();
+            answer.add("identifiers", synonyms);
+            return answer.toString();
+        }
+        if (!synonyms.isEmpty()) return synonyms.toString();
+
+        Matcher quotedName = QUOTED_NAME.matcher(prompt);
+        String name = quotedName.find() ? quotedName.group(1) : "";
+        if (!structured) return name;
+
+        JsonObject answer = new JsonObject();
+        answer.add("synonyms", singletonArray(name));
+        return answer.toString();
+    }
+
+    private static JsonArray singletonArray(String element) {
+        JsonArray array = new JsonArray();
+        array.add(element);
+        return array;
+    }
+
+    public void start() {
+        // The server dispatches from a thread that inherits the daemon status of the thread that starts it. Starting it
+        // from a daemon thread makes sure the server never keeps the JVM alive.
+        Thread starter = new Thread(server::start);
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting the stub server", e);
+        }
+    }
+
+    public String getBaseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + "/v1";
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            requests.incrementAndGet();
+            JsonObject request;
+            try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                request = JsonParser.parseReader(reader).getAsJsonObject();
+            }
+            String prompt = lastMessageOf(request);
+            String answer = responder.apply(prompt);
+            simulateLatency();
+
+            byte[] response = createCompletion(request.get("model").getAsString(), prompt, answer).toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        }
+    }
+
+    private String lastMessageOf(JsonObject request) {
+        JsonArray messages = request.getAsJsonArray("messages");
+        JsonElement content = messages.get(messages.size() - 1).getAsJsonObject().get("content");
+        // The content is either a string or a list of text parts.
+        if (content.isJsonPrimitive()) return content.getAsString();
+        StringBuilder text = new StringBuilder();
+        for (JsonElement part : content.getAsJsonArray()) {
+            text.append(part.getAsJsonObject().get("text").getAsString());
+        }
+        return text.toString();
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis == 0) return;
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonObject createCompletion(String model, String prompt, String answer) {
+        JsonObject message = new JsonObject();
+        message.addProperty("role", "assistant");
+        message.addProperty("content", answer);
+        message.add("refusal", JsonNull.INSTANCE);
+
+        JsonObject choice = new JsonObject();
+        choice.addProperty("index", 0);
+        choice.add("message", message);
+        choice.addProperty("finish_reason", "stop");
+        choice.add("logprobs", JsonNull.INSTANCE);
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+
+        long promptTokens = Tokens.estimate(prompt);
+        long completionTokens = Tokens.estimate(answer);
+        JsonObject usage = new JsonObject();
+        usage.addProperty("prompt_tokens", promptTokens);
+        usage.addProperty("completion_tokens", completionTokens);
+        usage.addProperty("total_tokens", promptTokens + completionTokens);
+
+        JsonObject completion = new JsonObject();
+        completion.addProperty("id", "chatcmpl-stub-" + requests.get());
+        completion.addProperty("object", "chat.completion");
+        completion.addProperty("created", System.currentTimeMillis() / 1000);
+        completion.addProperty("model", model);
+        completion.add("choices", choices);
+        completion.add("usage", usage);
+        return completion;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
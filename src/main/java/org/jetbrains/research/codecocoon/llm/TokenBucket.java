@@ -0,0 +1,68 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket that refills continuously up to a number of tokens per minute. Tokens are reserved in advance, so
+ * callers are served in the order they asked, and nobody holds the bucket while waiting.
+ */
+class TokenBucket {
+    private static final double NANOS_PER_MINUTE = 60_000_000_000.0;
+
+    private final long tokensPerMinute;
+    private final LongSupplier nanoTime;
+    private double available;
+    private long lastRefill;
+
+    TokenBucket(long tokensPerMinute) {
+        this(tokensPerMinute, System::nanoTime);
+    }
+
+    TokenBucket(long tokensPerMinute, LongSupplier nanoTime) {
+        if (tokensPerMinute < 1) throw new IllegalArgumentException("Tokens per minute should be at least 1, but was: " + tokensPerMinute);
+        this.tokensPerMinute = tokensPerMinute;
+        this.nanoTime = nanoTime;
+        this.available = tokensPerMinute;
+        this.lastRefill = nanoTime.getAsLong();
+    }
+
+    /**
+     * Reserves the tokens and returns how many nanoseconds the caller has to wait before using them. Requests for more
+     * tokens than fit in the bucket reserve a full bucket.
+     */
+    synchronized long reserve(long tokens) {
+        refill();
+        available -= Math.min(tokens, tokensPerMinute);
+        if (available >= 0) return 0;
+        return (long) Math.ceil(-available * NANOS_PER_MINUTE / tokensPerMinute);
+    }
+
+    /**
+     * Reserves the tokens only if they are available right away, and returns whether they were.
+     */
+    synchronized boolean tryReserve(long tokens) {
+        refill();
+        long reserved = Math.min(tokens, tokensPerMinute);
+        if (available < reserved) return false;
+        available -= reserved;
+        return true;
+    }
+
+    /**
+     * Gives back tokens that were reserved but not used.
+     */
+    synchronized void refund(long tokens) {
+        refill();
+        available = Math.min(tokensPerMinute, available + Math.min(tokens, tokensPerMinute));
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        available = Math.min(tokensPerMinute, available + (now - lastRefill) * tokensPerMinute / NANOS_PER_MINUTE);
+        lastRefill = now;
+    }
+
+    long getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+}
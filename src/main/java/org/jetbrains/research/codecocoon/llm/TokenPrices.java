@@ -0,0 +1,26 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import com.openai.models.ChatModel;
+
+/**
+ * The prices of a model in US dollars per million tokens.
+ */
+public record TokenPrices(double promptTokenPrice, double completionTokenPrice) {
+    public static final TokenPrices FREE = new TokenPrices(0, 0);
+    // The list prices of gpt-4o-mini. Other models, for example on a local server, are free unless configured otherwise.
+    private static final TokenPrices GPT_4O_MINI = new TokenPrices(0.15, 0.60);
+
+    public TokenPrices {
+        if (promptTokenPrice < 0 || completionTokenPrice < 0) {
+            throw new IllegalArgumentException("Token prices should not be negative, but were: " + promptTokenPrice + " and " + completionTokenPrice);
+        }
+    }
+
+    public static TokenPrices forModel(String model) {
+        return OpenAI.apiModelName(model).equals(ChatModel.GPT_4O_MINI.asString()) ? GPT_4O_MINI : FREE;
+    }
+
+    public double cost(long promptTokens, long completionTokens) {
+        return (promptTokens * promptTokenPrice + completionTokens * completionTokenPrice) / 1_000_000;
+    }
+}
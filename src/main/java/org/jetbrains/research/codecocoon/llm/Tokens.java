@@ -0,0 +1,14 @@
+package org.jetbrains.research.codecocoon.llm;
+
+public class Tokens {
+
+    private Tokens() {}
+
+    /**
+     * Estimates the number of tokens of a text at four characters per token, which is close enough for English text
+     * and code. The actual number depends on the tokenizer of the model.
+     */
+    public static long estimate(String text) {
+        return text.length() / 4 + 1;
+    }
+}
@@ -0,0 +1,28 @@
+package org.jetbrains.research.codecocoon.llm;
+
+/**
+ * The tokens that requests to an LLM used, as reported by the API, and what they cost in US dollars.
+ */
+public record Usage(long requests, long promptTokens, long completionTokens, double cost) {
+    public static final Usage NONE = new Usage(0, 0, 0, 0);
+
+    public long totalTokens() {
+        return promptTokens + completionTokens;
+    }
+
+    public Usage plus(Usage other) {
+        return new Usage(requests + other.requests, promptTokens + other.promptTokens,
+                completionTokens + other.completionTokens, cost + other.cost);
+    }
+
+    public Usage minus(Usage other) {
+        return new Usage(requests - other.requests, promptTokens - other.promptTokens,
+                completionTokens - other.completionTokens, cost - other.cost);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, %d prompt tokens, %d completion tokens, estimated cost $%.4f",
+                requests, promptTokens, completionTokens, cost);
+    }
+}
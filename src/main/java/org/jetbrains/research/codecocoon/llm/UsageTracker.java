@@ -0,0 +1,53 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adds up the usage of all requests of a run. A caller of an LLM can also find out what its own prompt cost, even though
+ * the request was sent further down, for example by a hedged LLM on another thread. To do so, it claims the prompt before
+ * the query and takes the usage afterwards. Only the usage of claimed prompts is kept, so prompts that nobody claims,
+ * like those of the cache warmer or a hedged request that finishes after the query returned, only count towards the
+ * total.
+ */
+public class UsageTracker {
+    private final Map<String, ClaimedUsage> claimedUsage = new HashMap<>();
+    private Usage total = Usage.NONE;
+
+    public synchronized void record(String prompt, Usage usage) {
+        total = total.plus(usage);
+        ClaimedUsage claimed = claimedUsage.get(prompt);
+        if (claimed != null) claimed.usage = claimed.usage.plus(usage);
+    }
+
+    /**
+     * Starts keeping the usage of the prompt until it is taken. Callers that send the same prompt at the same time each
+     * claim it, and the first one to take the usage gets it.
+     */
+    public synchronized void claim(String prompt) {
+        claimedUsage.computeIfAbsent(prompt, key -> new ClaimedUsage()).claims++;
+    }
+
+    /**
+     * The usage of the prompt since it was claimed, which is none if the prompt was answered from the cache. Every claim
+     * has to be followed by exactly one call to this method.
+     */
+    public synchronized Usage takeUsage(String prompt) {
+        ClaimedUsage claimed = claimedUsage.get(prompt);
+        if (claimed == null) return Usage.NONE;
+
+        Usage usage = claimed.usage;
+        claimed.usage = Usage.NONE;
+        if (--claimed.claims == 0) claimedUsage.remove(prompt);
+        return usage;
+    }
+
+    public synchronized Usage getTotal() {
+        return total;
+    }
+
+    private static class ClaimedUsage {
+        private int claims = 0;
+        private Usage usage = Usage.NONE;
+    }
+}
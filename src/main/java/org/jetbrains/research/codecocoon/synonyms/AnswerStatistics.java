@@ -0,0 +1,56 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of how many answers of the LLM contained a usable synonym, either right away or after a repair prompt.
+ */
+public class AnswerStatistics {
+    public enum Outcome {
+        USABLE,
+        REPAIRED,
+        UNUSABLE
+    }
+
+    private final AtomicLong usable = new AtomicLong();
+    private final AtomicLong repaired = new AtomicLong();
+    private final AtomicLong unusable = new AtomicLong();
+
+    public void record(Outcome outcome) {
+        switch (outcome) {
+            case USABLE -> usable.incrementAndGet();
+            case REPAIRED -> repaired.incrementAndGet();
+            case UNUSABLE -> unusable.incrementAndGet();
+        }
+    }
+
+    public long getAnswers() {
+        return usable.get() + repaired.get() + unusable.get();
+    }
+
+    public long getUsable() {
+        return usable.get();
+    }
+
+    public long getRepaired() {
+        return repaired.get();
+    }
+
+    public long getUnusable() {
+        return unusable.get();
+    }
+
+    /**
+     * The share of answers that were usable in the end, including the repaired ones.
+     */
+    public double getUsableRate() {
+        long answers = getAnswers();
+        return answers == 0 ? 0 : (double) (usable.get() + repaired.get()) / answers;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d answers, %.1f%% usable (%d after a repair), %d unusable",
+                getAnswers(), getUsableRate() * 100, getRepaired(), getUnusable());
+    }
+}
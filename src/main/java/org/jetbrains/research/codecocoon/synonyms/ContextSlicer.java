@@ -0,0 +1,78 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import org.jetbrains.research.codecocoon.llm.Tokens;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces the context of an identifier to the lines that matter for its name: the signature of the function and the
+ * lines that use the identifier, which includes its declaration. Omitted lines are replaced by a "// ..." comment, and
+ * the result is cut off once it exceeds the token budget.
+ * <p>
+ * The context is sliced per line instead of per statement, so that the snippet does not have to be parsed again. A
+ * function name is used in the whole body, so its context is only cut off at the token budget.
+ */
+public class ContextSlicer {
+    private static final String OMISSION = "// ...";
+
+    private final int tokenBudget;
+
+    public ContextSlicer(int tokenBudget) {
+        if (tokenBudget < 1) throw new IllegalArgumentException("Token budget should be at least 1, but was: " + tokenBudget);
+        this.tokenBudget = tokenBudget;
+    }
+
+    public String slice(String code, String identifierName, String identifierType) {
+        String[] lines = code.split("\n", -1);
+        int bodyStart = findBodyStart(lines);
+        Pattern usage = Pattern.compile("\\b" + Pattern.quote(identifierName) + "\\b");
+
+        List<String> slice = new ArrayList<>();
+        long tokens = 0;
+        boolean budgetExceeded = false;
+        String omissionIndentation = null;
+        for (int i = 0; i < lines.length; i++) {
+            boolean isSignature = i <= bodyStart;
+            boolean isEnd = i == lines.length - 1;
+            boolean isRelevant = identifierType.equals("function") || usage.matcher(lines[i]).find();
+            if (!isSignature && !isEnd) {
+                if (isRelevant && tokens + Tokens.estimate(lines[i]) > tokenBudget) budgetExceeded = true;
+                if (!isRelevant || budgetExceeded) {
+                    if (omissionIndentation == null) omissionIndentation = indentationOf(lines[i]);
+                    continue;
+                }
+            }
+
+            if (omissionIndentation != null) {
+                slice.add(omissionIndentation + OMISSION);
+                omissionIndentation = null;
+            }
+            slice.add(lines[i]);
+            tokens += Tokens.estimate(lines[i]);
+        }
+        return String.join("\n", slice);
+    }
+
+    private int findBodyStart(String[] lines) {
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].contains("{")) return i;
+        }
+        return lines.length - 1;
+    }
+
+    private String indentationOf(String line) {
+        int end = 0;
+        while (end < line.length() && Character.isWhitespace(line.charAt(end))) end++;
+        return line.substring(0, end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ContextSlicer otherSlicer) {
+            return tokenBudget == otherSlicer.tokenBudget;
+        }
+        return false;
+    }
+}
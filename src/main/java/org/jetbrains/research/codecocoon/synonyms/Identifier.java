@@ -0,0 +1,7 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+/**
+ * An identifier in a snippet, together with its type: variable, parameter or function.
+ */
+public record Identifier(String name, String type) {
+}
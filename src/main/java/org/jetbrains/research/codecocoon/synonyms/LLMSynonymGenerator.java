@@ -1,38 +1,397 @@
 package org.jetbrains.research.codecocoon.synonyms;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.jetbrains.research.codecocoon.llm.BudgetExceededException;
 import org.jetbrains.research.codecocoon.llm.LLM;
+import org.jetbrains.research.codecocoon.llm.Usage;
+import org.jetbrains.research.codecocoon.llm.UsageTracker;
 
+import javax.lang.model.SourceVersion;
 import java.text.MessageFormat;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 public class LLMSynonymGenerator implements SynonymGenerator {
+    public static final int DEFAULT_REPAIR_ATTEMPTS = 1;
+    private static final String BATCH_KIND = "batch";
+
+    private static final Pattern CANDIDATE_DECORATION = Pattern.compile("^(\\d+[.)]|[-*])\\s*|[`\"']");
+    private static final Pattern NAME_QUOTES = Pattern.compile("^[`\"']+|[`\"']+$");
+
     private final String promptTemplate = "Generate a synonym for the {0} \"{1}\" in the following code snippet: \n\n{2}\nIf no good alternative is possible, return the original name.\nAnswer with only the new {0} name.";
+    private final String batchPromptTemplate = "Generate a synonym for each of the following identifiers in the code snippet below:\n{0}\nCode snippet: \n\n{1}\nIf no good alternative is possible for an identifier, use the original name.\nAnswer with only a JSON array that contains an object with the fields \"type\", \"name\" and \"synonym\" for every identifier.";
+    private final String candidatesPromptTemplate = "Generate {3} different synonyms for the {0} \"{1}\" in the following code snippet: \n\n{2}\nIf no good alternative is possible, return the original name.\nAnswer with only the new {0} names, one per line, the best one first.";
+    private final String batchCandidatesPromptTemplate = "Generate {2} different synonyms for each of the following identifiers in the code snippet below:\n{0}\nCode snippet: \n\n{1}\nIf no good alternative is possible for an identifier, use the original name.\nAnswer with only a JSON array that contains an object with the fields \"type\", \"name\" and \"synonyms\" for every identifier, where \"synonyms\" is an array with the best synonym first.";
+    private final String structuredPromptTemplate = "Generate synonyms for the {0} \"{1}\" in the following code snippet: \n\n{2}\nIf no good alternative is possible, return the original name.\nAnswer with only a JSON object with the field \"synonyms\": an array of at most {3} new {0} names, the best one first.";
+    private final String structuredBatchPromptTemplate = "Generate synonyms for each of the following identifiers in the code snippet below:\n{0}\nCode snippet: \n\n{1}\nIf no good alternative is possible for an identifier, use the original name.\nAnswer with only a JSON object with the field \"identifiers\": an array that contains an object with the fields \"type\", \"name\" and \"synonyms\" for every identifier, where \"synonyms\" is an array of at most {2} names, the best one first.";
+    private final String repairPromptTemplate = "{0}\n\nYour previous answer was:\n{1}\nThat answer is not usable, because {2}. Answer again with only the JSON object.";
     private final LLM llm;
+    private final Optional<ContextSlicer> contextSlicer;
+    private final int candidates;
+    private final boolean structured;
+    private final int repairAttempts;
+    private final PromptStatistics promptStatistics = new PromptStatistics();
+    private final AnswerStatistics answerStatistics = new AnswerStatistics();
+    private final UsageTracker usageTracker;
+    private final Optional<SynonymGenerator> budgetFallback;
+    private final Map<String, Usage> usageByKind = new ConcurrentHashMap<>();
+    private final AtomicLong budgetFallbacks = new AtomicLong();
 
     public LLMSynonymGenerator(LLM llm) {
+        this(llm, Optional.empty());
+    }
+
+    /**
+     * @param contextSlicer reduces the context in the prompt to the parts that are relevant for the identifier.
+     */
+    public LLMSynonymGenerator(LLM llm, Optional<ContextSlicer> contextSlicer) {
+        this(llm, contextSlicer, 1);
+    }
+
+    /**
+     * @param candidates the number of synonyms to ask for in every prompt, so that the transformers can fall back to the
+     *                   next one when a synonym is not valid in the snippet.
+     */
+    public LLMSynonymGenerator(LLM llm, Optional<ContextSlicer> contextSlicer, int candidates) {
+        this(llm, contextSlicer, candidates, false, DEFAULT_REPAIR_ATTEMPTS);
+    }
+
+    /**
+     * @param structured     asks for the synonyms as JSON, and only accepts answers that contain legal identifiers.
+     * @param repairAttempts the number of times an unusable structured answer is sent back to the LLM to be corrected.
+     */
+    public LLMSynonymGenerator(LLM llm, Optional<ContextSlicer> contextSlicer, int candidates, boolean structured, int repairAttempts) {
+        this(llm, contextSlicer, candidates, structured, repairAttempts, new UsageTracker(), Optional.empty());
+    }
+
+    /**
+     * @param usageTracker   the tracker the LLM reports its usage to, so that the usage can be broken down by the kind of
+     *                       identifier.
+     * @param budgetFallback generates the synonyms once the budget of the LLM is spent. Without it, only cached synonyms
+     *                       are used from then on, and the other identifiers keep their names.
+     */
+    public LLMSynonymGenerator(LLM llm, Optional<ContextSlicer> contextSlicer, int candidates, boolean structured,
+                               int repairAttempts, UsageTracker usageTracker, Optional<SynonymGenerator> budgetFallback) {
+        if (candidates < 1) throw new IllegalArgumentException("Candidates should be at least 1, but was: " + candidates);
+        if (repairAttempts < 0) throw new IllegalArgumentException("Repair attempts should not be negative, but was: " + repairAttempts);
         this.llm = llm;
+        this.contextSlicer = contextSlicer;
+        this.candidates = candidates;
+        this.structured = structured;
+        this.repairAttempts = repairAttempts;
+        this.usageTracker = usageTracker;
+        this.budgetFallback = budgetFallback;
     }
 
     @Override
     public String generateSynonymFor(String identifierName, String context, String identifierType) {
+        return generateSynonymCandidatesFor(identifierName, context, identifierType).get(0);
+    }
+
+    @Override
+    public List<String> generateSynonymCandidatesFor(String identifierName, String context, String identifierType) {
         String prompt = generatePrompt(identifierName, context, identifierType);
+        if (contextSlicer.isPresent()) {
+            String slicedContext = contextSlicer.get().slice(context, identifierName, identifierType);
+            String slicedPrompt = generatePrompt(identifierName, slicedContext, identifierType);
+            promptStatistics.record(prompt, slicedPrompt);
+            prompt = slicedPrompt;
+        } else {
+            promptStatistics.record(prompt, prompt);
+        }
         try {
-            String synonym = llm.query(prompt);
-            return synonym;
+            String answer = query(prompt, identifierType);
+            if (structured) return queryUntilUsable(prompt, identifierType, answer, this::parseStructuredAnswer);
+
+            List<String> synonyms = candidates == 1 ? List.of(answer) : parseCandidatesAnswer(answer);
+            answerStatistics.record(!synonyms.isEmpty() && SourceVersion.isName(synonyms.get(0)) ? AnswerStatistics.Outcome.USABLE : AnswerStatistics.Outcome.UNUSABLE);
+            if (!synonyms.isEmpty()) return synonyms;
+        } catch (UnusableAnswerException e) {
+            // The answer is counted in the answer statistics, and the identifier keeps its name.
+        } catch (BudgetExceededException e) {
+            budgetFallbacks.incrementAndGet();
+            if (budgetFallback.isPresent()) {
+                return new FallbackCandidates(budgetFallback.get().generateSynonymCandidatesFor(identifierName, context, identifierType));
+            }
+            return new FallbackCandidates(List.of(identifierName));
         } catch (Exception e) {
             e.printStackTrace();
+            return new FallbackCandidates(List.of(identifierName));
+        }
+        return List.of(identifierName);
+    }
+
+    /**
+     * Candidates are a fallback if the LLM could not be asked, because it failed or the budget was spent. An unusable
+     * answer is not a fallback, since asking again gives the same answer from the cache.
+     */
+    @Override
+    public boolean isFallback(List<String> candidates) {
+        return candidates instanceof FallbackCandidates;
+    }
+
+    /**
+     * Asks for the synonyms of all identifiers in a single prompt. Identifiers that are missing from the answer, or all
+     * identifiers if the answer cannot be parsed, fall back to a separate prompt per identifier.
+     */
+    @Override
+    public Map<Identifier, String> generateSynonymsFor(List<Identifier> identifiers, String context) {
+        Map<Identifier, String> synonyms = new HashMap<>();
+        generateSynonymCandidatesFor(identifiers, context).forEach((identifier, candidates) -> synonyms.put(identifier, candidates.get(0)));
+        return synonyms;
+    }
+
+    @Override
+    public Map<Identifier, List<String>> generateSynonymCandidatesFor(List<Identifier> identifiers, String context) {
+        Map<Identifier, List<String>> synonyms = new HashMap<>();
+        if (identifiers.size() > 1) {
+            try {
+                String batchPrompt = generateBatchPrompt(identifiers, context);
+                promptStatistics.record(batchPrompt, batchPrompt);
+                String answer = query(batchPrompt, BATCH_KIND);
+                synonyms.putAll(structured
+                        ? queryUntilUsable(batchPrompt, BATCH_KIND, answer, structuredAnswer -> parseStructuredBatchAnswer(structuredAnswer, identifiers))
+                        : parsePlainBatchAnswer(answer, identifiers));
+            } catch (UnusableAnswerException | BudgetExceededException e) {
+                // Every identifier gets a prompt of its own, which may still be cached.
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        for (Identifier identifier : identifiers) {
+            if (!synonyms.containsKey(identifier)) {
+                synonyms.put(identifier, generateSynonymCandidatesFor(identifier.name(), context, identifier.type()));
+            }
+        }
+        return synonyms;
+    }
+
+    public PromptStatistics getPromptStatistics() {
+        return promptStatistics;
+    }
+
+    public AnswerStatistics getAnswerStatistics() {
+        return answerStatistics;
+    }
+
+    /**
+     * The usage of the LLM by the kind of identifier the prompts were about, or "batch" for prompts about all
+     * identifiers of a snippet.
+     */
+    public Map<String, Usage> getUsageByKind() {
+        return new TreeMap<>(usageByKind);
+    }
+
+    /**
+     * The number of identifiers that could not be sent to the LLM because the budget was spent.
+     */
+    public long getBudgetFallbacks() {
+        return budgetFallbacks.get();
+    }
+
+    private String query(String prompt, String kind) {
+        usageTracker.claim(prompt);
+        try {
+            return llm.query(prompt);
+        } finally {
+            usageByKind.merge(kind, usageTracker.takeUsage(prompt), Usage::plus);
+        }
+    }
+
+    /**
+     * Parses the answer, and sends an unusable answer back to the LLM with the reason it is unusable, at most
+     * repairAttempts times. The repair prompt contains the previous answer, so it is never answered from the cache with
+     * the same answer.
+     */
+    private <T> T queryUntilUsable(String prompt, String kind, String answer, Function<String, T> parser) {
+        for (int repairs = 0; ; repairs++) {
+            try {
+                T result = parser.apply(answer);
+                answerStatistics.record(repairs == 0 ? AnswerStatistics.Outcome.USABLE : AnswerStatistics.Outcome.REPAIRED);
+                return result;
+            } catch (UnusableAnswerException e) {
+                if (repairs == repairAttempts) {
+                    answerStatistics.record(AnswerStatistics.Outcome.UNUSABLE);
+                    throw e;
+                }
+                String repairPrompt = MessageFormat.format(repairPromptTemplate, prompt, answer, e.getMessage());
+                promptStatistics.record(repairPrompt, repairPrompt);
+                answer = query(repairPrompt, kind);
+            }
         }
-        return identifierName;
     }
 
     private String generatePrompt(String variableName, String context, String identifierType) {
+        if (structured) return MessageFormat.format(structuredPromptTemplate, identifierType, variableName, context, candidates);
+        if (candidates > 1) return MessageFormat.format(candidatesPromptTemplate, identifierType, variableName, context, candidates);
         return MessageFormat.format(promptTemplate, identifierType, variableName, context);
     }
 
+    private String generateBatchPrompt(List<Identifier> identifiers, String context) {
+        StringBuilder identifierList = new StringBuilder();
+        for (Identifier identifier : identifiers) {
+            identifierList.append("- ").append(identifier.type()).append(" \"").append(identifier.name()).append("\"\n");
+        }
+        if (structured) return MessageFormat.format(structuredBatchPromptTemplate, identifierList, context, candidates);
+        if (candidates > 1) return MessageFormat.format(batchCandidatesPromptTemplate, identifierList, context, candidates);
+        return MessageFormat.format(batchPromptTemplate, identifierList, context);
+    }
+
+    /**
+     * Reads one synonym per line. Models tend to number or bullet the lines, and sometimes quote the names.
+     */
+    private List<String> parseCandidatesAnswer(String answer) {
+        Set<String> synonyms = new LinkedHashSet<>();
+        for (String line : answer.split("\n")) {
+            String synonym = CANDIDATE_DECORATION.matcher(line.strip()).replaceAll("");
+            if (!synonym.isEmpty()) synonyms.add(synonym);
+        }
+        return synonyms.stream().limit(candidates).toList();
+    }
+
+    private List<String> parseStructuredAnswer(String answer) {
+        JsonObject object = parseJsonObject(answer);
+        List<String> synonyms = parseBatchCandidates(object);
+        if (synonyms.isEmpty()) throw new UnusableAnswerException("the field \"synonyms\" does not contain a legal Java identifier");
+        return synonyms;
+    }
+
+    private Map<Identifier, List<String>> parseStructuredBatchAnswer(String answer, List<Identifier> identifiers) {
+        JsonObject object = parseJsonObject(answer);
+        if (!object.has("identifiers") || !object.get("identifiers").isJsonArray()) {
+            throw new UnusableAnswerException("it does not contain the array \"identifiers\"");
+        }
+        Map<Identifier, List<String>> synonyms = parseBatchEntries(object.getAsJsonArray("identifiers"), identifiers);
+        if (synonyms.isEmpty()) throw new UnusableAnswerException("it does not contain a legal Java identifier for any of the identifiers");
+        return synonyms;
+    }
+
+    private JsonObject parseJsonObject(String answer) {
+        // Models tend to wrap the JSON in a markdown code block, so only the object itself is parsed.
+        int start = answer.indexOf('{');
+        int end = answer.lastIndexOf('}');
+        if (start < 0 || end < start) throw new UnusableAnswerException("it does not contain a JSON object");
+        try {
+            return JsonParser.parseString(answer.substring(start, end + 1)).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new UnusableAnswerException("it is not valid JSON");
+        }
+    }
+
+    private Map<Identifier, List<String>> parsePlainBatchAnswer(String answer, List<Identifier> identifiers) {
+        try {
+            Map<Identifier, List<String>> synonyms = parseBatchAnswer(answer, identifiers);
+            answerStatistics.record(AnswerStatistics.Outcome.USABLE);
+            return synonyms;
+        } catch (RuntimeException e) {
+            answerStatistics.record(AnswerStatistics.Outcome.UNUSABLE);
+            throw e;
+        }
+    }
+
+    private Map<Identifier, List<String>> parseBatchAnswer(String answer, List<Identifier> identifiers) {
+        // Models tend to wrap the JSON in a markdown code block, so only the array itself is parsed.
+        int start = answer.indexOf('[');
+        int end = answer.lastIndexOf(']');
+        if (start < 0 || end < start) throw new IllegalArgumentException("No JSON array in answer: " + answer);
+        JsonArray entries = JsonParser.parseString(answer.substring(start, end + 1)).getAsJsonArray();
+        return parseBatchEntries(entries, identifiers);
+    }
+
+    private Map<Identifier, List<String>> parseBatchEntries(JsonArray entries, List<Identifier> identifiers) {
+        Map<Identifier, List<String>> synonyms = new HashMap<>();
+        for (JsonElement entry : entries) {
+            if (!entry.isJsonObject()) continue;
+            JsonObject object = entry.getAsJsonObject();
+            if (!isString(object, "type") || !isString(object, "name")) continue;
+
+            Identifier identifier = new Identifier(object.get("name").getAsString(), object.get("type").getAsString());
+            List<String> candidates = parseBatchCandidates(object);
+            if (identifiers.contains(identifier) && !candidates.isEmpty()) {
+                synonyms.put(identifier, candidates);
+            }
+        }
+        return synonyms;
+    }
+
+    /**
+     * In structured mode, the names are cleaned up and only legal Java identifiers are kept.
+     */
+    private List<String> parseBatchCandidates(JsonObject object) {
+        Set<String> synonyms = new LinkedHashSet<>();
+        if (isString(object, "synonym")) {
+            synonyms.add(object.get("synonym").getAsString());
+        } else if (object.has("synonyms") && object.get("synonyms").isJsonArray()) {
+            for (JsonElement synonym : object.getAsJsonArray("synonyms")) {
+                if (synonym.isJsonPrimitive() && synonym.getAsJsonPrimitive().isString()) synonyms.add(synonym.getAsString());
+            }
+        }
+        if (!structured) return synonyms.stream().limit(candidates).toList();
+
+        return synonyms.stream()
+                .map(synonym -> NAME_QUOTES.matcher(synonym.strip()).replaceAll(""))
+                .filter(SourceVersion::isName)
+                .distinct()
+                .limit(candidates)
+                .toList();
+    }
+
+    private boolean isString(JsonObject object, String field) {
+        return object.has(field) && object.get(field).isJsonPrimitive() && object.get(field).getAsJsonPrimitive().isString();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o instanceof LLMSynonymGenerator otherSynonymGenerator) {
-            return this.llm.equals(otherSynonymGenerator.llm);
+            return this.llm.equals(otherSynonymGenerator.llm)
+                    && this.contextSlicer.equals(otherSynonymGenerator.contextSlicer)
+                    && this.candidates == otherSynonymGenerator.candidates
+                    && this.structured == otherSynonymGenerator.structured
+                    && this.repairAttempts == otherSynonymGenerator.repairAttempts
+                    && this.budgetFallback.equals(otherSynonymGenerator.budgetFallback);
         }
         return false;
     }
+
+    private static class UnusableAnswerException extends RuntimeException {
+        UnusableAnswerException(String reason) {
+            super(reason);
+        }
+    }
+
+    /**
+     * Marks the candidates that were not generated by the LLM, see {@link #isFallback}.
+     */
+    private static final class FallbackCandidates extends AbstractList<String> {
+        private final List<String> candidates;
+
+        FallbackCandidates(List<String> candidates) {
+            this.candidates = candidates;
+        }
+
+        @Override
+        public String get(int index) {
+            return candidates.get(index);
+        }
+
+        @Override
+        public int size() {
+            return candidates.size();
+        }
+    }
 }
@@ -1,47 +1,163 @@
 package org.jetbrains.research.codecocoon.synonyms;
 
-import net.sf.extjwnl.data.IndexWord;
-import net.sf.extjwnl.data.POS;
-import net.sf.extjwnl.data.Synset;
-import net.sf.extjwnl.data.Word;
-import net.sf.extjwnl.dictionary.Dictionary;
-import net.sf.extjwnl.JWNLException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Generates synonyms from WordNet nouns. The generator is safe to share between threads without locking: the synonyms
+ * are looked up in an immutable table instead of the WordNet dictionary, and the synonyms of words are memoized in a
+ * concurrent map.
+ */
 public class LexicalSynonymGenerator implements SynonymGenerator {
+    public static final int DEFAULT_MAX_MEMOIZED_TOKENS = 100_000;
+    // The words of camelCase, PascalCase, snake_case and UPPER_SNAKE_CASE names. Acronyms such as "URL" are one word.
+    private static final Pattern TOKEN = Pattern.compile("[A-Z]+(?![a-z])|[A-Z]?[a-z]+|[0-9]+");
+    private static final Pattern WORD = Pattern.compile("[a-z]+");
 
-    private final Dictionary dictionary;
+    private final LexicalSynonymTable table;
+    private final boolean splitIdentifiers;
+    private final int maxMemoizedTokens;
+    private final Map<String, List<String>> tokenSynonyms = new ConcurrentHashMap<>();
 
-    public LexicalSynonymGenerator() throws JWNLException {
-        this.dictionary = Dictionary.getDefaultResourceInstance();
+    public LexicalSynonymGenerator() {
+        this(false, DEFAULT_MAX_MEMOIZED_TOKENS);
+    }
+
+    /**
+     * @param splitIdentifiers  generates synonyms for the words of identifiers that are not a noun themselves, such as
+     *                          seriesCount or legend_item, and puts them back together in the same style.
+     * @param maxMemoizedTokens the number of words whose synonyms are remembered. Frequent words show up early, so once
+     *                          the memo is full, the synonyms of new words are looked up every time instead.
+     */
+    public LexicalSynonymGenerator(boolean splitIdentifiers, int maxMemoizedTokens) {
+        if (maxMemoizedTokens < 0) {
+            throw new IllegalArgumentException("Maximum number of memoized tokens should not be negative, but was: " + maxMemoizedTokens);
+        }
+        this.splitIdentifiers = splitIdentifiers;
+        this.maxMemoizedTokens = maxMemoizedTokens;
+        try {
+            this.table = LexicalSynonymTable.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the lexical synonym table", e);
+        }
     }
 
     @Override
     public String generateSynonymFor(String identifierName, String context, String identifierType){
-        if (identifierName.length() == 1) return identifierName;
+        return generateSynonymCandidatesFor(identifierName, context, identifierType).get(0);
+    }
 
-        try {
-            IndexWord indexWord = dictionary.getIndexWord(POS.NOUN, identifierName);
+    @Override
+    public boolean usesContext() {
+        return false;
+    }
+
+    /**
+     * The synonyms of all senses of the identifier, in the order of the senses, or only the identifier itself if it has
+     * no synonyms. When identifiers are split, an identifier without synonyms of its own gets the synonyms of its words.
+     */
+    @Override
+    public List<String> generateSynonymCandidatesFor(String identifierName, String context, String identifierType) {
+        if (identifierName.length() == 1) return List.of(identifierName);
+
+        // The synonyms from the table are a read-only view, so they are returned without copying them.
+        List<String> synonyms = table.getSynonyms(identifierName);
+        if (synonyms.isEmpty() && splitIdentifiers) synonyms = generateSplitSynonymCandidatesFor(identifierName);
+        return synonyms.isEmpty() ? List.of(identifierName) : synonyms;
+    }
 
-            if (indexWord == null) return identifierName;
+    /**
+     * Replaces every word of the identifier by a synonym, keeping the case of the word and everything in between the
+     * words. The n-th candidate uses the n-th synonym of every word, or its last synonym if it has fewer.
+     */
+    private List<String> generateSplitSynonymCandidatesFor(String identifierName) {
+        List<String> separators = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        Matcher token = TOKEN.matcher(identifierName);
+        int end = 0;
+        while (token.find()) {
+            separators.add(identifierName.substring(end, token.start()));
+            tokens.add(token.group());
+            end = token.end();
+        }
+        String suffix = identifierName.substring(end);
 
-            for (Synset synset : indexWord.getSenses()) {
-                for (Word synWord : synset.getWords()) {
-                    // Sometimes, synonyms are multiple words.
-                    String synonym = synWord.getLemma().split(" ")[0];
+        List<List<String>> synonymsPerToken = new ArrayList<>();
+        int maxSynonyms = 0;
+        for (String word : tokens) {
+            List<String> synonyms = getTokenSynonyms(word);
+            synonymsPerToken.add(synonyms);
+            maxSynonyms = Math.max(maxSynonyms, synonyms.size());
+        }
 
-                    if (!synonym.equals(identifierName)) {
-                        return synonym;
-                    }
-                }
+        // There are only a few candidates, so a list is searched for duplicates instead of copying a set into a list.
+        List<String> candidates = new ArrayList<>(maxSynonyms);
+        for (int n = 0; n < maxSynonyms; n++) {
+            StringBuilder candidate = new StringBuilder();
+            for (int i = 0; i < tokens.size(); i++) {
+                List<String> synonyms = synonymsPerToken.get(i);
+                String word = synonyms.isEmpty() ? tokens.get(i) : withCaseOf(tokens.get(i), synonyms.get(Math.min(n, synonyms.size() - 1)));
+                candidate.append(separators.get(i)).append(word);
             }
-            return identifierName;
-        } catch(JWNLException e) {
-            return identifierName;
+            String joinedCandidate = candidate.append(suffix).toString();
+            if (!joinedCandidate.equals(identifierName) && !candidates.contains(joinedCandidate)) candidates.add(joinedCandidate);
         }
+        return Collections.unmodifiableList(candidates);
+    }
+
+    /**
+     * The lowercase synonyms of a word that only consist of letters, so that they can be put into an identifier.
+     */
+    private List<String> getTokenSynonyms(String token) {
+        if (token.length() == 1 || !Character.isLetter(token.charAt(0))) return List.of();
+
+        String word = token.toLowerCase(Locale.ROOT);
+        List<String> memoizedSynonyms = tokenSynonyms.get(word);
+        if (memoizedSynonyms != null) return memoizedSynonyms;
+
+        List<String> tableSynonyms = table.getSynonyms(word);
+        List<String> wordSynonyms = tableSynonyms;
+        // Most words only have lowercase synonyms of letters, whose view is used as it is. Otherwise, the synonyms are
+        // made lowercase, which may turn two of them into the same word or into the word itself.
+        if (!tableSynonyms.stream().allMatch(synonym -> WORD.matcher(synonym).matches())) {
+            Set<String> synonyms = new LinkedHashSet<>();
+            for (String synonym : tableSynonyms) {
+                String lowercaseSynonym = synonym.toLowerCase(Locale.ROOT);
+                if (WORD.matcher(lowercaseSynonym).matches() && !lowercaseSynonym.equals(word)) synonyms.add(lowercaseSynonym);
+            }
+            wordSynonyms = List.copyOf(synonyms);
+        }
+        // The size is only approximate under concurrency, which is good enough for a bound.
+        if (tokenSynonyms.size() < maxMemoizedTokens) tokenSynonyms.putIfAbsent(word, wordSynonyms);
+        return wordSynonyms;
+    }
+
+    int getMemoizedTokens() {
+        return tokenSynonyms.size();
+    }
+
+    private String withCaseOf(String token, String word) {
+        if (token.length() > 1 && token.equals(token.toUpperCase(Locale.ROOT))) return word.toUpperCase(Locale.ROOT);
+        if (Character.isUpperCase(token.charAt(0))) return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+        return word;
     }
 
     @Override
     public boolean equals(Object o) {
-        return o instanceof LexicalSynonymGenerator;
+        if (o instanceof LexicalSynonymGenerator otherSynonymGenerator) {
+            return splitIdentifiers == otherSynonymGenerator.splitIdentifiers
+                    && maxMemoizedTokens == otherSynonymGenerator.maxMemoizedTokens;
+        }
+        return false;
     }
 }
@@ -0,0 +1,281 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.POS;
+import net.sf.extjwnl.data.Synset;
+import net.sf.extjwnl.data.Word;
+import net.sf.extjwnl.dictionary.Dictionary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The synonyms of all WordNet nouns, flattened into a compact binary table that is memory mapped instead of loading the
+ * WordNet dictionary. The table is built by {@link LexicalSynonymTableBuilder} during the build.
+ * <p>
+ * The table consists of a sorted pool of all lemmas and synonyms, the offsets of every string in the pool, and for every
+ * string the indices of its synonyms, in the order of the senses. Strings that are not a noun have no synonyms. Looking
+ * up a lemma is a binary search over the pool that does not allocate.
+ * <p>
+ * The table is never written after it is loaded, and only read with absolute reads, which do not change the position of
+ * the buffer. It can therefore be read by any number of threads at once.
+ */
+public class LexicalSynonymTable {
+    static final String RESOURCE = "lexical-synonyms.bin";
+    private static final int MAGIC = 0x43435753;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private final ByteBuffer table;
+    private final int strings;
+    private final int stringOffsetsStart;
+    private final int synonymOffsetsStart;
+    private final int synonymsStart;
+    private final int poolStart;
+    // Strings are only decoded once, when they are first returned.
+    private final String[] decodedStrings;
+
+    LexicalSynonymTable(ByteBuffer table) {
+        if (table.getInt(0) != MAGIC || table.getInt(Integer.BYTES) != VERSION) {
+            throw new IllegalArgumentException("Not a lexical synonym table of version " + VERSION);
+        }
+        this.table = table;
+        this.strings = table.getInt(2 * Integer.BYTES);
+        this.stringOffsetsStart = HEADER_SIZE;
+        this.synonymOffsetsStart = stringOffsetsStart + (strings + 1) * Integer.BYTES;
+        this.synonymsStart = synonymOffsetsStart + (strings + 1) * Integer.BYTES;
+        this.poolStart = synonymsStart + table.getInt(synonymOffsetsStart + strings * Integer.BYTES) * Integer.BYTES;
+        this.decodedStrings = new String[strings];
+    }
+
+    /**
+     * Maps the table that was built with the classes, or builds it from the WordNet dictionary if there is none, for
+     * example when the classes were compiled without the build.
+     */
+    public static LexicalSynonymTable load() throws IOException {
+        URL resource = LexicalSynonymTable.class.getResource(RESOURCE);
+        if (resource == null) {
+            try {
+                return new LexicalSynonymTable(build(Dictionary.getDefaultResourceInstance()));
+            } catch (JWNLException e) {
+                throw new IOException("Could not build the lexical synonym table from the WordNet dictionary", e);
+            }
+        }
+
+        if (resource.getProtocol().equals("file")) {
+            try {
+                return map(Path.of(resource.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid path of the lexical synonym table: " + resource, e);
+            }
+        }
+
+        // A resource in a jar cannot be mapped, so it is extracted first.
+        Path extractedTable = Files.createTempFile("lexical-synonyms", ".bin");
+        extractedTable.toFile().deleteOnExit();
+        try (InputStream input = resource.openStream()) {
+            Files.copy(input, extractedTable, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return map(extractedTable);
+    }
+
+    public static LexicalSynonymTable map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new LexicalSynonymTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * The synonyms of the noun, in the order of its senses, without the identifier itself. The noun is looked up like
+     * the WordNet dictionary does: ignoring case and surrounding whitespace, with underscores for spaces. The synonyms
+     * are a read-only view of the table, so looking them up does not copy anything.
+     */
+    public List<String> getSynonyms(String identifierName) {
+        int index = find(identifierName);
+        if (index < 0) return List.of();
+
+        int start = table.getInt(synonymOffsetsStart + index * Integer.BYTES);
+        int end = table.getInt(synonymOffsetsStart + (index + 1) * Integer.BYTES);
+        // The synonyms of a noun have no duplicates, so the identifier itself occurs at most once.
+        int skipped = -1;
+        for (int i = start; i < end && skipped < 0; i++) {
+            if (compare(synonymAt(i), identifierName, 0, identifierName.length(), false) == 0) skipped = i;
+        }
+        if (start == end || (skipped >= 0 && end - start == 1)) return List.of();
+        return new Synonyms(start, end, skipped);
+    }
+
+    private int find(String identifierName) {
+        int from = 0;
+        int to = identifierName.length();
+        // Trims like String#trim, without copying the identifier.
+        while (from < to && identifierName.charAt(from) <= ' ') from++;
+        while (to > from && identifierName.charAt(to - 1) <= ' ') to--;
+
+        int low = 0;
+        int high = strings - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, identifierName, from, to, true);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int synonymAt(int position) {
+        return table.getInt(synonymsStart + position * Integer.BYTES);
+    }
+
+    /**
+     * Compares a string of the pool with a range of a string in the order of {@link String#compareTo}, which is the
+     * order of the pool. All strings in the pool are ASCII, so every byte is a character. A lemma is looked up in lower
+     * case with underscores for spaces, which is applied to the characters while comparing them.
+     */
+    private int compare(int index, String string, int from, int to, boolean asLemma) {
+        int start = table.getInt(stringOffsetsStart + index * Integer.BYTES);
+        int length = table.getInt(stringOffsetsStart + (index + 1) * Integer.BYTES) - start;
+        int commonLength = Math.min(length, to - from);
+        for (int i = 0; i < commonLength; i++) {
+            char poolCharacter = (char) table.get(poolStart + start + i);
+            char character = string.charAt(from + i);
+            if (asLemma && character == ' ') character = '_';
+            if (asLemma && character >= 'A' && character <= 'Z') character = (char) (character + ('a' - 'A'));
+            if (poolCharacter != character) return poolCharacter - character;
+        }
+        return length - (to - from);
+    }
+
+    private String decode(int index) {
+        String decoded = decodedStrings[index];
+        if (decoded != null) return decoded;
+
+        int start = table.getInt(stringOffsetsStart + index * Integer.BYTES);
+        int end = table.getInt(stringOffsetsStart + (index + 1) * Integer.BYTES);
+        char[] characters = new char[end - start];
+        for (int i = 0; i < characters.length; i++) {
+            characters[i] = (char) table.get(poolStart + start + i);
+        }
+        // Strings are immutable, so a string that is decoded by two threads at once is simply decoded twice.
+        decoded = new String(characters);
+        decodedStrings[index] = decoded;
+        return decoded;
+    }
+
+    /**
+     * The synonyms between two positions of the synonym indices, leaving out the one at the skipped position, if any.
+     */
+    private class Synonyms extends AbstractList<String> {
+        private final int start;
+        private final int size;
+        private final int skipped;
+
+        Synonyms(int start, int end, int skipped) {
+            this.start = start;
+            this.size = skipped < 0 ? end - start : end - start - 1;
+            this.skipped = skipped;
+        }
+
+        @Override
+        public String get(int index) {
+            Objects.checkIndex(index, size);
+            int position = start + index;
+            if (skipped >= 0 && position >= skipped) position++;
+            return decode(synonymAt(position));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Flattens the synonyms of all nouns of the dictionary into a table. The synonyms of a noun are the first words of
+     * the lemmas of all its senses, without duplicates. Nouns are stored with underscores for spaces, which is how they
+     * are looked up.
+     */
+    static ByteBuffer build(Dictionary dictionary) throws JWNLException {
+        Map<String, List<String>> synonymsByLemma = new TreeMap<>();
+        Iterator<IndexWord> indexWords = dictionary.getIndexWordIterator(POS.NOUN);
+        while (indexWords.hasNext()) {
+            IndexWord indexWord = indexWords.next();
+            Set<String> synonyms = new LinkedHashSet<>();
+            for (Synset synset : indexWord.getSenses()) {
+                for (Word synWord : synset.getWords()) {
+                    // Sometimes, synonyms are multiple words.
+                    synonyms.add(synWord.getLemma().split(" ")[0]);
+                }
+            }
+            synonymsByLemma.put(indexWord.getLemma().replace(' ', '_'), List.copyOf(synonyms));
+        }
+
+        TreeSet<String> pool = new TreeSet<>(synonymsByLemma.keySet());
+        synonymsByLemma.values().forEach(pool::addAll);
+        List<String> sortedPool = List.copyOf(pool);
+        Map<String, Integer> indices = new TreeMap<>();
+        int poolSize = 0;
+        int synonymCount = 0;
+        for (String string : sortedPool) {
+            if (!string.chars().allMatch(character -> character < 128)) {
+                throw new IllegalArgumentException("The lexical synonym table only supports ASCII, but found: " + string);
+            }
+            indices.put(string, indices.size());
+            poolSize += string.length();
+            synonymCount += synonymsByLemma.getOrDefault(string, List.of()).size();
+        }
+
+        int size = HEADER_SIZE + 2 * (sortedPool.size() + 1) * Integer.BYTES + synonymCount * Integer.BYTES + poolSize;
+        ByteBuffer table = ByteBuffer.allocate(size);
+        table.putInt(MAGIC).putInt(VERSION).putInt(sortedPool.size());
+
+        int offset = 0;
+        for (String string : sortedPool) {
+            table.putInt(offset);
+            offset += string.length();
+        }
+        table.putInt(offset);
+
+        offset = 0;
+        for (String string : sortedPool) {
+            table.putInt(offset);
+            offset += synonymsByLemma.getOrDefault(string, List.of()).size();
+        }
+        table.putInt(offset);
+
+        for (String string : sortedPool) {
+            for (String synonym : synonymsByLemma.getOrDefault(string, List.of())) {
+                table.putInt(indices.get(synonym));
+            }
+        }
+        for (String string : sortedPool) {
+            for (int i = 0; i < string.length(); i++) {
+                table.put((byte) string.charAt(i));
+            }
+        }
+        return table.flip();
+    }
+}
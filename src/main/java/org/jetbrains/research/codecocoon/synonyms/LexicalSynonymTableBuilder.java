@@ -0,0 +1,30 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.dictionary.Dictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Builds the lexical synonym table from the WordNet dictionary. Maven runs this after compiling, and writes the table
+ * next to the classes.
+ */
+public class LexicalSynonymTableBuilder {
+
+    public static void main(String[] args) throws JWNLException, IOException {
+        Path outputDirectory = Path.of(args[0]);
+        Path tablePath = outputDirectory.resolve(LexicalSynonymTable.class.getPackageName().replace('.', '/')).resolve(LexicalSynonymTable.RESOURCE);
+
+        ByteBuffer table = LexicalSynonymTable.build(Dictionary.getDefaultResourceInstance());
+        Files.createDirectories(tablePath.getParent());
+        try (FileChannel channel = FileChannel.open(tablePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (table.hasRemaining()) channel.write(table);
+        }
+        System.out.println("Wrote the lexical synonym table to " + tablePath);
+    }
+}
@@ -0,0 +1,201 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the synonym candidates of the most recently used identifiers of another synonym generator, so that an
+ * identifier that is renamed by several transformers, or that occurs in many snippets, is only resolved once. The
+ * context is part of the key, unless the synonym generator does not use it. Only a fingerprint of the context is kept,
+ * so the memo does not keep whole snippets in memory. Candidates that are only a fallback, for example because the LLM
+ * was unavailable, are not remembered.
+ * <p>
+ * The memo is split into segments by the hash of the key, each with its own lock and its own least recently used order,
+ * so that threads looking up different identifiers rarely wait for each other. Small memos have a single segment, in
+ * which case the least recently used entry overall is evicted.
+ */
+public class MemoizingSynonymGenerator implements SynonymGenerator {
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_SIZE = 256;
+
+    private final SynonymGenerator synonymGenerator;
+    private final int maxSize;
+    private final Segment[] segments;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public MemoizingSynonymGenerator(SynonymGenerator synonymGenerator, int maxSize) {
+        if (maxSize < 1) throw new IllegalArgumentException("Memo size should be at least 1, but was: " + maxSize);
+        this.synonymGenerator = synonymGenerator;
+        this.maxSize = maxSize;
+        // A power of two, so that the segment of a key is a cheap mask of its hash.
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // The sizes add up to the maximum size.
+            segments[i] = new Segment(maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0));
+        }
+    }
+
+    @Override
+    public String generateSynonymFor(String identifierName, String context, String identifierType) {
+        List<String> candidates = generateSynonymCandidatesFor(identifierName, context, identifierType);
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    @Override
+    public List<String> generateSynonymCandidatesFor(String identifierName, String context, String identifierType) {
+        Key key = new Key(identifierName, identifierType, contextKey(context));
+        List<String> candidates = get(key);
+        if (candidates != null) return candidates;
+
+        // Identifiers that are resolved concurrently may be resolved twice, which the cache of the LLM takes care of.
+        candidates = synonymGenerator.generateSynonymCandidatesFor(identifierName, context, identifierType);
+        putUnlessFallback(key, candidates);
+        return candidates;
+    }
+
+    @Override
+    public Map<Identifier, String> generateSynonymsFor(List<Identifier> identifiers, String context) {
+        Map<Identifier, String> synonyms = new HashMap<>();
+        generateSynonymCandidatesFor(identifiers, context).forEach((identifier, candidates) ->
+                synonyms.put(identifier, candidates.isEmpty() ? null : candidates.get(0)));
+        return synonyms;
+    }
+
+    /**
+     * Only the identifiers that are not memoized are passed on, together in a single batch.
+     */
+    @Override
+    public Map<Identifier, List<String>> generateSynonymCandidatesFor(List<Identifier> identifiers, String context) {
+        String contextKey = contextKey(context);
+        Map<Identifier, List<String>> synonyms = new HashMap<>();
+        List<Identifier> missingIdentifiers = new ArrayList<>();
+        for (Identifier identifier : identifiers) {
+            List<String> candidates = get(new Key(identifier.name(), identifier.type(), contextKey));
+            if (candidates != null) {
+                synonyms.put(identifier, candidates);
+            } else {
+                missingIdentifiers.add(identifier);
+            }
+        }
+        if (missingIdentifiers.isEmpty()) return synonyms;
+
+        synonymGenerator.generateSynonymCandidatesFor(missingIdentifiers, context).forEach((identifier, candidates) -> {
+            putUnlessFallback(new Key(identifier.name(), identifier.type(), contextKey), candidates);
+            synonyms.put(identifier, candidates);
+        });
+        return synonyms;
+    }
+
+    @Override
+    public boolean usesContext() {
+        return synonymGenerator.usesContext();
+    }
+
+    @Override
+    public boolean isFallback(List<String> candidates) {
+        return synonymGenerator.isFallback(candidates);
+    }
+
+    public SynonymGenerator getSynonymGenerator() {
+        return synonymGenerator;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long lookups = hits.get() + misses.get();
+        return lookups == 0 ? 0 : (double) hits.get() / lookups;
+    }
+
+    /**
+     * A SHA-256 fingerprint of the context, which is short enough to keep in memory for every key, and long enough that
+     * two different contexts never share one in practice.
+     */
+    private String contextKey(String context) {
+        if (!synonymGenerator.usesContext()) return "";
+        try {
+            byte[] fingerprint = MessageDigest.getInstance("SHA-256").digest(context.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(fingerprint);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java runtime supports SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<String> get(Key key) {
+        List<String> candidates = segmentOf(key).get(key);
+        (candidates == null ? misses : hits).incrementAndGet();
+        return candidates;
+    }
+
+    private void putUnlessFallback(Key key, List<String> candidates) {
+        if (!synonymGenerator.isFallback(candidates)) segmentOf(key).put(key, candidates);
+    }
+
+    private Segment segmentOf(Key key) {
+        int hash = key.hashCode();
+        // Spreads the high bits of the hash to the low bits that select the segment.
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lookups, %.1f%% hits, %d evictions", hits.get() + misses.get(), getHitRate() * 100, getEvictions());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof MemoizingSynonymGenerator otherSynonymGenerator) {
+            return synonymGenerator.equals(otherSynonymGenerator.synonymGenerator) && maxSize == otherSynonymGenerator.maxSize;
+        }
+        return false;
+    }
+
+    private record Key(String identifierName, String identifierType, String context) {
+    }
+
+    private class Segment {
+        private final Map<Key, List<String>> entries;
+
+        Segment(int maxSize) {
+            // A map in access order evicts the least recently used entry.
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest) {
+                    boolean evict = size() > maxSize;
+                    if (evict) evictions.incrementAndGet();
+                    return evict;
+                }
+            };
+        }
+
+        synchronized List<String> get(Key key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(Key key, List<String> candidates) {
+            entries.put(key, candidates);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import org.jetbrains.research.codecocoon.llm.Tokens;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the estimated size of the prompts, before and after their context was sliced.
+ */
+public class PromptStatistics {
+    private final AtomicLong prompts = new AtomicLong();
+    private final AtomicLong fullTokens = new AtomicLong();
+    private final AtomicLong sentTokens = new AtomicLong();
+
+    public void record(String fullPrompt, String sentPrompt) {
+        prompts.incrementAndGet();
+        fullTokens.addAndGet(Tokens.estimate(fullPrompt));
+        sentTokens.addAndGet(Tokens.estimate(sentPrompt));
+    }
+
+    public long getPrompts() {
+        return prompts.get();
+    }
+
+    public double getAverageFullTokens() {
+        return average(fullTokens.get());
+    }
+
+    public double getAverageSentTokens() {
+        return average(sentTokens.get());
+    }
+
+    private double average(long tokens) {
+        long count = prompts.get();
+        return count == 0 ? 0 : (double) tokens / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d prompts, on average %.0f tokens before slicing and %.0f tokens after slicing",
+                getPrompts(), getAverageFullTokens(), getAverageSentTokens());
+    }
+}
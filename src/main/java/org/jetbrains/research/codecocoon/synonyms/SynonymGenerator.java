@@ -1,6 +1,57 @@
 package org.jetbrains.research.codecocoon.synonyms;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 public interface SynonymGenerator {
 
     String generateSynonymFor(String identifierName, String context, String identifierType);
+
+    /**
+     * Whether the synonyms depend on the context, so that synonyms can be reused across snippets if they do not.
+     */
+    default boolean usesContext() {
+        return true;
+    }
+
+    /**
+     * Whether the candidates are only a fallback, because no synonyms could be generated for the identifier this time,
+     * for example because the LLM was unavailable. Such candidates should not be remembered, since the next attempt may
+     * give real synonyms.
+     */
+    default boolean isFallback(List<String> candidates) {
+        return false;
+    }
+
+    /**
+     * Generates a ranked list of synonyms, best first, so that the next one can be used when a synonym is not valid in
+     * the snippet. By default, the only candidate is the synonym from {@link #generateSynonymFor}.
+     */
+    default List<String> generateSynonymCandidatesFor(String identifierName, String context, String identifierType) {
+        return Stream.ofNullable(generateSynonymFor(identifierName, context, identifierType)).toList();
+    }
+
+    /**
+     * Generates synonyms for multiple identifiers in the same context at once. By default, a synonym is generated for
+     * every identifier separately.
+     */
+    default Map<Identifier, String> generateSynonymsFor(List<Identifier> identifiers, String context) {
+        Map<Identifier, String> synonyms = new HashMap<>();
+        for (Identifier identifier : identifiers) {
+            synonyms.put(identifier, generateSynonymFor(identifier.name(), context, identifier.type()));
+        }
+        return synonyms;
+    }
+
+    /**
+     * Generates ranked lists of synonyms for multiple identifiers in the same context at once. By default, the only
+     * candidate for every identifier is its synonym from {@link #generateSynonymsFor}.
+     */
+    default Map<Identifier, List<String>> generateSynonymCandidatesFor(List<Identifier> identifiers, String context) {
+        Map<Identifier, List<String>> candidates = new HashMap<>();
+        generateSynonymsFor(identifiers, context).forEach((identifier, synonym) -> candidates.put(identifier, List.of(synonym)));
+        return candidates;
+    }
 }
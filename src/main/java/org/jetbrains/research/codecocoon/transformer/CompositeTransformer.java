@@ -1,28 +1,108 @@
 package org.jetbrains.research.codecocoon.transformer;
 
+import com.github.javaparser.ast.body.CallableDeclaration;
 import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.synonyms.Identifier;
+import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
+import org.jetbrains.research.codecocoon.transformer.identifiers.IdentifierTransformer;
+import org.jetbrains.research.codecocoon.transformer.parser.SnippetParser;
 
-import java.util.List;
+import java.util.*;
 
 public class CompositeTransformer extends Transformer {
     private final List<Transformer> transformers;
+    private final boolean batchSynonyms;
 
     public CompositeTransformer(List<Transformer> transformers) {
+        this(transformers, SnippetParser.DEFAULT);
+    }
+
+    public CompositeTransformer(List<Transformer> transformers, SnippetParser parser) {
+        this(transformers, parser, false);
+    }
+
+    /**
+     * @param batchSynonyms whether to generate the synonyms for all identifiers of a snippet at once, before any
+     *                      transformer is applied. All synonyms then use the original snippet as context.
+     */
+    public CompositeTransformer(List<Transformer> transformers, SnippetParser parser, boolean batchSynonyms) {
+        super(parser);
         this.transformers = transformers;
+        this.batchSynonyms = batchSynonyms;
     }
 
+    /**
+     * Applies all transformers to the same AST, so the snippet is parsed once and printed once at the end.
+     */
     @Override
-    public void transform(Snippet snippet) {
+    protected boolean apply(CallableDeclaration<?> function, Snippet snippet) {
+        String originalCode = snippet.getCode();
+        if (batchSynonyms) prefetchSynonyms(function, snippet);
+
+        boolean changed = false;
+        boolean codeIsUpToDate = true;
         for (Transformer transformer : transformers) {
-            transformer.transform(snippet);
+            // The preconditions are checked against the code before any transformer changed it. This is fine, because
+            // no transformer introduces the tokens that the preconditions of the other transformers look for.
+            if (!transformer.isApplicableTo(originalCode)) continue;
+            // Transformers that read the code should see the result of the previous transformers, exactly as if every
+            // transformer had printed its own result.
+            if (!codeIsUpToDate && transformer.usesSnippetCode()) {
+                snippet.setCode(function.toString());
+                codeIsUpToDate = true;
+            }
+            if (transformer.apply(function, snippet)) {
+                changed = true;
+                codeIsUpToDate = false;
+            }
         }
+        snippet.setPrefetchedSynonyms(Map.of());
+        return recordChange(changed);
     }
 
+    private void prefetchSynonyms(CallableDeclaration<?> function, Snippet snippet) {
+        // The identifier transformers normally share a synonym generator, which then gets a single request.
+        Map<SynonymGenerator, Set<Identifier>> identifiersPerGenerator = new IdentityHashMap<>();
+        for (Transformer transformer : transformers) {
+            if (transformer instanceof IdentifierTransformer identifierTransformer && transformer.isApplicableTo(snippet.getCode())) {
+                identifiersPerGenerator
+                        .computeIfAbsent(identifierTransformer.getSynonymGenerator(), generator -> new LinkedHashSet<>())
+                        .addAll(identifierTransformer.findIdentifiers(function));
+            }
+        }
+
+        Map<Identifier, List<String>> synonyms = new HashMap<>();
+        for (Map.Entry<SynonymGenerator, Set<Identifier>> entry : identifiersPerGenerator.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            // Sorting the identifiers by type makes the request independent of the order of the transformers, so it
+            // can be answered from the cache when the transformers are reordered.
+            List<Identifier> identifiers = new ArrayList<>(entry.getValue());
+            identifiers.sort(Comparator.comparing(Identifier::type));
+            synonyms.putAll(entry.getKey().generateSynonymCandidatesFor(identifiers, snippet.getOriginalCode()));
+        }
+        snippet.setPrefetchedSynonyms(synonyms);
+    }
+
+    @Override
+    protected boolean isApplicableTo(String code) {
+        return transformers.stream().anyMatch(transformer -> transformer.isApplicableTo(code));
+    }
+
+    @Override
+    protected boolean usesSnippetCode() {
+        return transformers.stream().anyMatch(Transformer::usesSnippetCode);
+    }
+
+
+    public List<Transformer> getTransformers() {
+        return transformers;
+    }
 
     @Override
     public boolean equals(Object o) {
         if (o instanceof CompositeTransformer otherCompositeTransformer) {
-            return transformers.equals(otherCompositeTransformer.transformers);
+            return transformers.equals(otherCompositeTransformer.transformers) && parser.equals(otherCompositeTransformer.parser)
+                    && batchSynonyms == otherCompositeTransformer.batchSynonyms;
         }
         return false;
     }
@@ -12,23 +12,33 @@ import java.util.Optional;
 
 public class ExpandUnaryIncrementTransformer extends Transformer {
 
+    @Override
+    protected boolean isApplicableTo(String code) {
+        return code.contains("++") || code.contains("--");
+    }
+
     @Override
     public Visitable visit(UnaryExpr expression, Snippet snippet) {
         if (!isInStatement(expression)) return super.visit(expression, snippet);
 
-        AssignExpr transformedExpression = new AssignExpr();
-        transformedExpression.setTarget(expression.getExpression());
-        transformedExpression.setValue(new IntegerLiteralExpr("1"));
+        AssignExpr.Operator assignOperator;
         switch (expression.getOperator()) {
             case POSTFIX_INCREMENT:
-                transformedExpression.setOperator(AssignExpr.Operator.PLUS);
+                assignOperator = AssignExpr.Operator.PLUS;
                 break;
             case POSTFIX_DECREMENT:
-                transformedExpression.setOperator(AssignExpr.Operator.MINUS);
+                assignOperator = AssignExpr.Operator.MINUS;
                 break;
             default:
                 return super.visit(expression, snippet);
         }
+
+        // The target is only moved once we know the expression is transformed, since moving detaches it from the
+        // original expression.
+        AssignExpr transformedExpression = new AssignExpr();
+        transformedExpression.setTarget(expression.getExpression());
+        transformedExpression.setValue(new IntegerLiteralExpr("1"));
+        transformedExpression.setOperator(assignOperator);
         snippet.addTransformation(Transformation.ExpandUnaryIncrement);
 
 
@@ -8,6 +8,12 @@ import org.jetbrains.research.codecocoon.Snippet;
 
 public class NestElseIfTransformer extends Transformer {
 
+    @Override
+    protected boolean isApplicableTo(String code) {
+        // Not "else if", since there can be any whitespace or comments in between.
+        return code.contains("else");
+    }
+
     @Override
     public Visitable visit(IfStmt ifStatement, Snippet snippet) {
         if (!ifStatement.hasElseBranch()) {
@@ -17,8 +23,9 @@ public class NestElseIfTransformer extends Transformer {
 
         BlockStmt block = new BlockStmt();
         if (elseStatement instanceof IfStmt) {
-            block.addStatement(elseStatement);
+            // Replacing the else statement detaches it from the AST, so it should only be moved into the block after.
             ifStatement.setElseStmt(block);
+            block.addStatement(elseStatement);
             snippet.addTransformation(Transformation.NestElseIf);
         }
 
@@ -11,6 +11,11 @@ import org.jetbrains.research.codecocoon.Snippet;
 
 public class ReverseIfTransformer extends Transformer {
 
+    @Override
+    protected boolean isApplicableTo(String code) {
+        return code.contains("else");
+    }
+
     @Override
     public Visitable visit(IfStmt ifStatement, Snippet snippet) {
         if (!ifStatement.hasElseBranch()) return super.visit(ifStatement, snippet);
@@ -19,6 +24,9 @@ public class ReverseIfTransformer extends Transformer {
         Statement elseStatement = ifStatement.getElseStmt().get();
         if (!(elseStatement instanceof BlockStmt)) return super.visit(ifStatement, snippet);
 
+        // Setting a branch detaches the statement that was there before. Removing the else branch first makes sure that
+        // the statement that moves to the then branch is not detached afterwards.
+        ifStatement.removeElseStmt();
         ifStatement.setThenStmt(elseStatement);
         ifStatement.setElseStmt(thenStatement);
 
@@ -30,15 +38,17 @@ public class ReverseIfTransformer extends Transformer {
         return super.visit(ifStatement, snippet);
     }
 
+    // The negated expression replaces the original one in the AST, which detaches the original expression. Therefore,
+    // a negation that wraps the original expression wraps a copy of it instead.
     private Expression negate(Expression condition) {
         if (condition instanceof BooleanLiteralExpr booleanLiteralExpression) return new BooleanLiteralExpr(!booleanLiteralExpression.getValue());
         if (condition instanceof BinaryExpr binaryCondition) return negate(binaryCondition);
-        if (condition instanceof NameExpr) return new UnaryExpr(condition, UnaryExpr.Operator.LOGICAL_COMPLEMENT);
-        if (condition instanceof MethodCallExpr) return new UnaryExpr(condition, UnaryExpr.Operator.LOGICAL_COMPLEMENT);
-        if (condition instanceof EnclosedExpr) return new UnaryExpr(condition, UnaryExpr.Operator.LOGICAL_COMPLEMENT);
+        if (condition instanceof NameExpr) return new UnaryExpr(condition.clone(), UnaryExpr.Operator.LOGICAL_COMPLEMENT);
+        if (condition instanceof MethodCallExpr) return new UnaryExpr(condition.clone(), UnaryExpr.Operator.LOGICAL_COMPLEMENT);
+        if (condition instanceof EnclosedExpr) return new UnaryExpr(condition.clone(), UnaryExpr.Operator.LOGICAL_COMPLEMENT);
         if (condition instanceof UnaryExpr unaryExpression && unaryExpression.getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT) return unaryExpression.getExpression();
 
-        return new UnaryExpr(new EnclosedExpr(condition), UnaryExpr.Operator.LOGICAL_COMPLEMENT);
+        return new UnaryExpr(new EnclosedExpr(condition.clone()), UnaryExpr.Operator.LOGICAL_COMPLEMENT);
     }
 
     private Expression negate(BinaryExpr condition) {
@@ -85,12 +95,12 @@ public class ReverseIfTransformer extends Transformer {
             }
         }
 
-        return new UnaryExpr(new EnclosedExpr(condition), UnaryExpr.Operator.LOGICAL_COMPLEMENT);
+        return new UnaryExpr(new EnclosedExpr(condition.clone()), UnaryExpr.Operator.LOGICAL_COMPLEMENT);
     }
 
     private Expression safeNegate(Expression expression) {
         if (isAndExpression(expression))  {
-            return new EnclosedExpr(negate(expression));
+            return new EnclosedExpr(negate(expression).clone());
         } else {
             return negate(expression);
         }
@@ -8,13 +8,21 @@ import org.jetbrains.research.codecocoon.Snippet;
 
 public class SwapEqualsOperandsTransformer extends Transformer {
 
+    @Override
+    protected boolean isApplicableTo(String code) {
+        return code.contains("==") || code.contains("!=");
+    }
+
 
     @Override
     public Visitable visit(BinaryExpr expression, Snippet snippet) {
         if (eligibleForSwap(expression)) {
             Expression left = expression.getLeft();
-            expression.setLeft(expression.getRight());
+            Expression right = expression.getRight();
+            expression.setLeft(right);
             expression.setRight(left);
+            // Setting the right operand detached the old right operand, which is the left operand by now.
+            right.setParentNode(expression);
             snippet.addTransformation(Transformation.SwapEqualsOperands);
         }
         return super.visit(expression, snippet);
@@ -9,30 +9,40 @@ import org.jetbrains.research.codecocoon.Snippet;
 
 public class SwapRelationOperandsTransformer extends Transformer {
 
+    @Override
+    protected boolean isApplicableTo(String code) {
+        return code.indexOf('<') >= 0 || code.indexOf('>') >= 0;
+    }
+
     @Override
     public Visitable visit(BinaryExpr expression, Snippet snippet) {
         if (containsAssignment(expression.getLeft()) || containsAssignment(expression.getRight())) return super.visit(expression, snippet);
 
 
-        BinaryExpr transformedExpression = new BinaryExpr();
-        transformedExpression.setLeft(expression.getRight());
-        transformedExpression.setRight(expression.getLeft());
+        BinaryExpr.Operator swappedOperator;
         switch (expression.getOperator()) {
             case LESS:
-                transformedExpression.setOperator(BinaryExpr.Operator.GREATER);
+                swappedOperator = BinaryExpr.Operator.GREATER;
                 break;
             case GREATER:
-                transformedExpression.setOperator(BinaryExpr.Operator.LESS);
+                swappedOperator = BinaryExpr.Operator.LESS;
                 break;
             case GREATER_EQUALS:
-                transformedExpression.setOperator(BinaryExpr.Operator.LESS_EQUALS);
+                swappedOperator = BinaryExpr.Operator.LESS_EQUALS;
                 break;
             case LESS_EQUALS:
-                transformedExpression.setOperator(BinaryExpr.Operator.GREATER_EQUALS);
+                swappedOperator = BinaryExpr.Operator.GREATER_EQUALS;
                 break;
             default:
                 return super.visit(expression, snippet);
         }
+
+        // The operands are only moved once we know the expression is transformed, since moving detaches them from the
+        // original expression.
+        BinaryExpr transformedExpression = new BinaryExpr();
+        transformedExpression.setLeft(expression.getRight());
+        transformedExpression.setRight(expression.getLeft());
+        transformedExpression.setOperator(swappedOperator);
         snippet.addTransformation(Transformation.SwapRelationOperands);
         return super.visit(transformedExpression, snippet);
     }
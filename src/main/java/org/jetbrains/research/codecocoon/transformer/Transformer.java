@@ -1,58 +1,88 @@
 package org.jetbrains.research.codecocoon.transformer;
 
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ParseResult;
-import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.CallableDeclaration;
-import com.github.javaparser.ast.body.ConstructorDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.parser.SnippetParser;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Refer to Design.md for visitor pattern.
  */
 public abstract class Transformer extends ModifierVisitor<Snippet> {
+    protected final SnippetParser parser;
+    private final AtomicInteger changedSnippets = new AtomicInteger();
+
+    protected Transformer() {
+        this(SnippetParser.DEFAULT);
+    }
+
+    protected Transformer(SnippetParser parser) {
+        this.parser = parser;
+    }
 
+    /**
+     * Transforms the snippet. The code is only printed again if the transformer changed something, otherwise the
+     * snippet keeps its original code.
+     */
     public void transform(Snippet snippet) {
-        CallableDeclaration<?> function = parse(snippet.getCode());
+        if (!isApplicableTo(snippet.getCode())) return;
+        CallableDeclaration<?> function = parse(snippet);
+        if (apply(function, snippet)) {
+            snippet.setCode(function.toString());
+        }
+    }
+
+    /**
+     * A cheap lexical precondition that is checked against the code before it is parsed. If it does not hold, the
+     * transformer cannot change the snippet and the snippet is not parsed or traversed at all. It may hold for snippets
+     * that the transformer does not change, but never the other way around.
+     */
+    protected boolean isApplicableTo(String code) {
+        return true;
+    }
+
+    /**
+     * Applies this transformer to an already parsed function, without printing the result back to the snippet.
+     * Every change to the AST has to be recorded as a {@link Transformation} on the snippet, which is how this method
+     * detects whether the function was changed.
+     *
+     * @return whether the function was changed.
+     */
+    protected boolean apply(CallableDeclaration<?> function, Snippet snippet) {
+        int transformationsBefore = snippet.getTransformationCount();
         try {
             function.accept(this, snippet);
         } catch (Exception e) {
             e.printStackTrace();
         }
-        snippet.setCode(function.toString());
+        return recordChange(snippet.getTransformationCount() > transformationsBefore);
     }
 
-    private CallableDeclaration<?> parse(String snippet) {
-        JavaParser parser = new JavaParser();
-
-        ParseResult<MethodDeclaration> parseMethodResult = parser.parseMethodDeclaration(snippet);
-
-        if (parseMethodResult.isSuccessful() && parseMethodResult.getResult().isPresent()) {
-            return parseMethodResult.getResult().get();
-        } else {
-            return parseConstructor(snippet);
-        }
+    protected boolean recordChange(boolean changed) {
+        if (changed) changedSnippets.incrementAndGet();
+        return changed;
     }
 
-    private ConstructorDeclaration parseConstructor(String snippet) {
-        JavaParser parser = new JavaParser();
-        // Wrap the method snippet in a class, since a constructor can only be parsed in a class context.
-        String wrappedSnippet = "class Wrapper {" + snippet + "}";
-        ParseResult<CompilationUnit> parseResult = parser.parse(wrappedSnippet);
-
-        if (!parseResult.isSuccessful() || parseResult.getResult().isEmpty()) {
-            throw new IllegalArgumentException("Could not parse function: " + snippet);
-        }
+    /**
+     * The number of snippets this transformer has changed so far.
+     */
+    public int getChangedSnippets() {
+        return changedSnippets.get();
+    }
 
-        CompilationUnit parsedClass = parseResult.getResult().get();
-        ConstructorDeclaration constructor = parsedClass
-                .findFirst(ConstructorDeclaration.class)
-                .orElseThrow(() -> new IllegalArgumentException("Could not parse function: " + snippet));
+    /**
+     * Whether this transformer reads the code of the snippet while transforming, for example as context for synonym
+     * generation. If so, the code has to be up-to-date with the AST before this transformer is applied.
+     */
+    protected boolean usesSnippetCode() {
+        return false;
+    }
 
-        return constructor;
+    protected CallableDeclaration<?> parse(Snippet snippet) {
+        return parser.parse(snippet);
     }
 
     @Override
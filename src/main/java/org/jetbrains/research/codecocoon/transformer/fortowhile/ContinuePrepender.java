@@ -14,7 +14,8 @@ public class ContinuePrepender extends ModifierVisitor<NodeList<Statement>> {
 
         BlockStmt block = new BlockStmt();
         addUpdates(block, updates);
-        block.addStatement(continueStmt);
+        // The returned block replaces the continue statement, which detaches the original from the AST.
+        block.addStatement(continueStmt.clone());
         return block;
     }
 
@@ -32,8 +33,9 @@ public class ContinuePrepender extends ModifierVisitor<NodeList<Statement>> {
     }
 
     private void addUpdates(BlockStmt block, NodeList<Statement> updates) {
+        // Every continue gets its own copy of the updates, a node can only be part of the AST once.
         for (Statement update : updates) {
-            block.addStatement(update);
+            block.addStatement(update.clone());
         }
     }
 
@@ -24,6 +24,11 @@ public class ForToWhileTransformer extends Transformer {
     }
 
 
+    @Override
+    protected boolean isApplicableTo(String code) {
+        return code.contains("for");
+    }
+
     // This transformer operates on block statements instead of for statements, because the result of this
     // transformation consists of multiple statements (the loop variable initialization and the while loop). Currently,
     // JavaParser does not support directly replacing a statement with multiple statements using the Visitor pattern.
@@ -37,6 +42,10 @@ public class ForToWhileTransformer extends Transformer {
         // variables in the code block.
         filterOutShadowingForStatements(forStatements, block);
 
+        // Labeled continue statements are not supported. Such loops are filtered out beforehand, since failing halfway
+        // through the transformation would leave a half transformed loop behind.
+        filterOutLabeledContinueForStatements(forStatements);
+
         for (ForStmt forLoop : forStatements) {
             NodeList<Statement> whileLoop = transformForToWhile(forLoop);
             replaceIn(block, forLoop, whileLoop);
@@ -62,6 +71,17 @@ public class ForToWhileTransformer extends Transformer {
         forStatements.addAll(filteredForStatements);
     }
 
+    private void filterOutLabeledContinueForStatements(List<ForStmt> forStatements) {
+        forStatements.removeIf(this::containsLabeledContinue);
+    }
+
+    private boolean containsLabeledContinue(ForStmt forStatement) {
+        return forStatement.getBody()
+                .findAll(ContinueStmt.class)
+                .stream()
+                .anyMatch(continueStatement -> continueStatement.getLabel().isPresent());
+    }
+
     private boolean initializationMatchesOtherVariableDeclaration(ForStmt forStatement, BlockStmt block) {
         List<VariableDeclarator> allVariableDeclarations = block.findAll(VariableDeclarator.class);
 
@@ -1,14 +1,17 @@
 package org.jetbrains.research.codecocoon.transformer.identifiers;
 
+import com.github.javaparser.ast.body.CallableDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.visitor.Visitable;
 import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.synonyms.Identifier;
 import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
 import org.jetbrains.research.codecocoon.transformer.Transformation;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 public class FunctionNameTransformer extends IdentifierTransformer {
@@ -17,15 +20,21 @@ public class FunctionNameTransformer extends IdentifierTransformer {
         super(synonymGenerator);
     }
 
+    public FunctionNameTransformer(SynonymGenerator synonymGenerator, SynonymContext synonymContext) {
+        super(synonymGenerator, synonymContext);
+    }
+
     @Override
     public Visitable visit(MethodDeclaration methodDeclaration, Snippet snippet) {
         String oldName = methodDeclaration.getNameAsString();
 
         if (isObjectMethod(oldName)) return super.visit(methodDeclaration, snippet);
 
-        String newName = synonymGenerator.generateSynonymFor(oldName, snippet.code, "function");
+        List<String> candidates = generateSynonymCandidatesFor(oldName, "function", snippet);
+        Optional<String> validName = findValidSynonym(candidates, candidate -> isValidSynonym(candidate, methodDeclaration));
 
-        if (isValidSynonym(newName, methodDeclaration)) {
+        if (validName.isPresent()) {
+            String newName = validName.get();
             methodDeclaration.setName(newName);
 
             replaceFunctionCalls(methodDeclaration, oldName, newName);
@@ -37,6 +46,14 @@ public class FunctionNameTransformer extends IdentifierTransformer {
         return super.visit(methodDeclaration, snippet);
     }
 
+    @Override
+    public List<Identifier> findIdentifiers(CallableDeclaration<?> functionDeclaration) {
+        if (!(functionDeclaration instanceof MethodDeclaration)) return List.of();
+        String name = functionDeclaration.getNameAsString();
+        if (isObjectMethod(name)) return List.of();
+        return List.of(new Identifier(name, "function"));
+    }
+
     private boolean isObjectMethod(String name) {
         Set<String> objectMethods = Set.of(
                 "getClass", "hashCode", "equals", "clone", "toString", "notify", "notifyAll", "wait", "finalize"
@@ -6,18 +6,28 @@ import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.nodeTypes.NodeWithSimpleName;
 import com.github.javaparser.ast.visitor.Visitable;
 import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.synonyms.Identifier;
 import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
 import org.jetbrains.research.codecocoon.transformer.Transformer;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Predicate;
 
 public abstract class IdentifierTransformer extends Transformer {
     protected final SynonymGenerator synonymGenerator;
+    protected final SynonymContext synonymContext;
 
     public IdentifierTransformer(SynonymGenerator synonymGenerator) {
+        this(synonymGenerator, SynonymContext.CURRENT);
+    }
+
+    public IdentifierTransformer(SynonymGenerator synonymGenerator, SynonymContext synonymContext) {
         this.synonymGenerator = synonymGenerator;
+        this.synonymContext = synonymContext;
     }
 
     @Override
@@ -34,6 +44,47 @@ public abstract class IdentifierTransformer extends Transformer {
         return callableDeclaration;
     }
 
+    /**
+     * The identifiers this transformer generates synonyms for, so that their synonyms can be generated at once.
+     */
+    public abstract List<Identifier> findIdentifiers(CallableDeclaration<?> functionDeclaration);
+
+    public SynonymGenerator getSynonymGenerator() {
+        return synonymGenerator;
+    }
+
+    /**
+     * Uses the synonyms that were generated beforehand together with the other identifiers of the snippet, if there are
+     * any.
+     */
+    protected List<String> generateSynonymCandidatesFor(String identifierName, String identifierType, Snippet snippet) {
+        String context = synonymContext == SynonymContext.ORIGINAL ? snippet.getOriginalCode() : snippet.getCode();
+        return snippet.getPrefetchedSynonymCandidates(new Identifier(identifierName, identifierType))
+                .orElseGet(() -> synonymGenerator.generateSynonymCandidatesFor(identifierName, context, identifierType));
+    }
+
+    /**
+     * The best candidate that is valid, so that a synonym that collides with another identifier does not cost the
+     * rename.
+     */
+    protected Optional<String> findValidSynonym(List<String> candidates, Predicate<String> isValid) {
+        return candidates.stream().filter(isValid).findFirst();
+    }
+
+    @Override
+    protected boolean usesSnippetCode() {
+        // The current code of the snippet is used as context for synonym generation.
+        return synonymContext == SynonymContext.CURRENT;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof IdentifierTransformer otherIdentifierTransformer) {
+            return getClass() == o.getClass() && synonymContext == otherIdentifierTransformer.synonymContext;
+        }
+        return false;
+    }
+
     protected boolean isValidSynonym(String synonym, CallableDeclaration<?> functionDeclaration, Map<String, String> identifierMapping) {
         Collection<? extends NodeWithSimpleName<?>> originalParameters = functionDeclaration.getParameters();
         Collection<? extends NodeWithSimpleName<?>> originalVariables = functionDeclaration.findAll(VariableDeclarator.class);
@@ -7,6 +7,7 @@ import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithSimpleName;
 import com.github.javaparser.ast.visitor.Visitable;
 import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.synonyms.Identifier;
 import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
 import org.jetbrains.research.codecocoon.transformer.Transformation;
 
@@ -18,6 +19,10 @@ public class ParameterNameTransformer extends IdentifierTransformer {
         super(synonymGenerator);
     }
 
+    public ParameterNameTransformer(SynonymGenerator synonymGenerator, SynonymContext synonymContext) {
+        super(synonymGenerator, synonymContext);
+    }
+
     @Override
     public Visitable visit(CallableDeclaration<?> functionDeclaration, Snippet snippet) {
         Map<String, String> parameterMapping = createParameterMapping(functionDeclaration, snippet);
@@ -35,16 +40,24 @@ public class ParameterNameTransformer extends IdentifierTransformer {
         Map<String, String> parameterMapping = new HashMap<>();
         for (Parameter parameter : parameters) {
             String originalName = parameter.getNameAsString();
-            String newName = synonymGenerator.generateSynonymFor(originalName, snippet.getCode(), "parameter");
+            List<String> candidates = generateSynonymCandidatesFor(originalName, "parameter", snippet);
 
-            if (isValidSynonym(newName, functionDeclaration, parameterMapping)) {
-                parameterMapping.put(originalName, newName);
-            }
+            findValidSynonym(candidates, newName -> isValidSynonym(newName, functionDeclaration, parameterMapping))
+                    .ifPresent(newName -> parameterMapping.put(originalName, newName));
 
         }
         return parameterMapping;
     }
 
+    @Override
+    public List<Identifier> findIdentifiers(CallableDeclaration<?> functionDeclaration) {
+        List<Identifier> identifiers = new ArrayList<>();
+        for (Parameter parameter : functionDeclaration.getParameters()) {
+            identifiers.add(new Identifier(parameter.getNameAsString(), "parameter"));
+        }
+        return identifiers;
+    }
+
     private void renameParameters(CallableDeclaration<?> functionDeclaration, Map<String, String> parameterMapping) {
         List<NodeWithSimpleName<?>> parameterOccurrences = findAllParameterOccurrences(functionDeclaration);
 
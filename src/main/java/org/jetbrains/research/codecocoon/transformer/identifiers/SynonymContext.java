@@ -0,0 +1,16 @@
+package org.jetbrains.research.codecocoon.transformer.identifiers;
+
+/**
+ * The code that is given to the synonym generator as context for an identifier.
+ */
+public enum SynonymContext {
+    /**
+     * The code as transformed by the previous transformers.
+     */
+    CURRENT,
+    /**
+     * The snippet as it was in the input. The synonyms then do not depend on the order of the transformers, so cached
+     * synonyms can be reused when the transformers are reordered.
+     */
+    ORIGINAL
+}
@@ -6,6 +6,7 @@ import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithSimpleName;
 import com.github.javaparser.ast.visitor.Visitable;
 import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.synonyms.Identifier;
 import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
 import org.jetbrains.research.codecocoon.transformer.Transformation;
 
@@ -18,6 +19,10 @@ public class VariableNameTransformer extends IdentifierTransformer {
         super(synonymGenerator);
     }
 
+    public VariableNameTransformer(SynonymGenerator synonymGenerator, SynonymContext synonymContext) {
+        super(synonymGenerator, synonymContext);
+    }
+
     @Override
     public Visitable visit(CallableDeclaration<?> functionDeclaration, Snippet snippet) {
         Map<String, String> variableSynonymMapping = createVariableSynonymMapping(functionDeclaration, snippet);
@@ -37,16 +42,24 @@ public class VariableNameTransformer extends IdentifierTransformer {
         List<VariableDeclarator> originalVariableDeclarations = functionDeclaration.findAll(VariableDeclarator.class);
         for (VariableDeclarator variable : originalVariableDeclarations) {
             String originalName = variable.getNameAsString();
-            String synonym = synonymGenerator.generateSynonymFor(originalName, snippet.getCode(), "variable");
+            List<String> candidates = generateSynonymCandidatesFor(originalName, "variable", snippet);
 
-            if (isValidSynonym(synonym, functionDeclaration, variableMapping)) {
-                variableMapping.put(originalName, synonym);
-            }
+            findValidSynonym(candidates, synonym -> isValidSynonym(synonym, functionDeclaration, variableMapping))
+                    .ifPresent(synonym -> variableMapping.put(originalName, synonym));
         }
 
         return variableMapping;
     }
 
+    @Override
+    public List<Identifier> findIdentifiers(CallableDeclaration<?> functionDeclaration) {
+        List<Identifier> identifiers = new ArrayList<>();
+        for (VariableDeclarator variable : functionDeclaration.findAll(VariableDeclarator.class)) {
+            identifiers.add(new Identifier(variable.getNameAsString(), "variable"));
+        }
+        return identifiers;
+    }
+
     private void renameVariables(CallableDeclaration<?> functionDeclaration, Map<String, String> variableSynonymMapping) {
         List<NodeWithSimpleName<?>> allVariableOccurrences = findAllVariableOccurrences(functionDeclaration);
 
@@ -79,7 +92,8 @@ public class VariableNameTransformer extends IdentifierTransformer {
     @Override
     public boolean equals(Object o) {
         if (o instanceof VariableNameTransformer otherVariableNameTransformer) {
-            return this.synonymGenerator.equals(otherVariableNameTransformer.synonymGenerator);
+            return this.synonymGenerator.equals(otherVariableNameTransformer.synonymGenerator)
+                    && this.synonymContext == otherVariableNameTransformer.synonymContext;
         }
         return false;
     }
@@ -0,0 +1,109 @@
+package org.jetbrains.research.codecocoon.transformer.parser;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Decides whether a snippet is a method or a constructor by scanning the tokens of its header, without parsing it.
+ * Comments, annotations, modifiers, generics and array brackets are skipped. If a single name is left before the
+ * parameter list, the snippet is a constructor. If there are more, the name is preceded by a return type, so the snippet
+ * is a method.
+ */
+public class FunctionClassifier {
+    private static final Set<String> MODIFIERS = Set.of(
+            "public", "protected", "private", "static", "final", "abstract", "synchronized", "native", "strictfp",
+            "default", "transient", "volatile"
+    );
+
+    private final String code;
+    private int position = 0;
+
+    private FunctionClassifier(String code) {
+        this.code = code;
+    }
+
+    public static Optional<FunctionKind> classify(String code) {
+        return new FunctionClassifier(code).classify();
+    }
+
+    private Optional<FunctionKind> classify() {
+        int names = 0;
+        while (position < code.length()) {
+            char current = code.charAt(position);
+            if (Character.isWhitespace(current)) {
+                position++;
+            } else if (code.startsWith("//", position)) {
+                skipPast("\n");
+            } else if (code.startsWith("/*", position)) {
+                skipPast("*/");
+            } else if (current == '@') {
+                skipAnnotation();
+            } else if (current == '<') {
+                skipBalanced('<', '>');
+            } else if (current == '[' || current == ']' || current == '.') {
+                position++;
+            } else if (Character.isJavaIdentifierStart(current)) {
+                String word = readIdentifier();
+                if (!MODIFIERS.contains(word)) names++;
+            } else if (current == '(') {
+                if (names == 1) return Optional.of(FunctionKind.CONSTRUCTOR);
+                if (names > 1) return Optional.of(FunctionKind.METHOD);
+                return Optional.empty();
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void skipPast(String end) {
+        int index = code.indexOf(end, position);
+        position = index < 0 ? code.length() : index + end.length();
+    }
+
+    private void skipAnnotation() {
+        // Skip the @ and the (qualified) annotation name.
+        position++;
+        while (position < code.length() && (Character.isJavaIdentifierPart(code.charAt(position)) || code.charAt(position) == '.')) {
+            position++;
+        }
+        while (position < code.length() && Character.isWhitespace(code.charAt(position))) {
+            position++;
+        }
+        if (position < code.length() && code.charAt(position) == '(') {
+            skipBalanced('(', ')');
+        }
+    }
+
+    private void skipBalanced(char open, char close) {
+        int depth = 0;
+        while (position < code.length()) {
+            char current = code.charAt(position);
+            if (current == '"' || current == '\'') {
+                skipLiteral(current);
+                continue;
+            }
+            if (current == open) depth++;
+            if (current == close) depth--;
+            position++;
+            if (depth == 0) return;
+        }
+    }
+
+    private void skipLiteral(char quote) {
+        position++;
+        while (position < code.length() && code.charAt(position) != quote) {
+            if (code.charAt(position) == '\\') position++;
+            position++;
+        }
+        position++;
+    }
+
+    private String readIdentifier() {
+        int start = position;
+        while (position < code.length() && Character.isJavaIdentifierPart(code.charAt(position))) {
+            position++;
+        }
+        return code.substring(start, position);
+    }
+}
@@ -0,0 +1,6 @@
+package org.jetbrains.research.codecocoon.transformer.parser;
+
+public enum FunctionKind {
+    METHOD,
+    CONSTRUCTOR
+}
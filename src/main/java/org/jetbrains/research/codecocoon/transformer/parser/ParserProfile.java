@@ -0,0 +1,24 @@
+package org.jetbrains.research.codecocoon.transformer.parser;
+
+import com.github.javaparser.ParserConfiguration;
+
+public enum ParserProfile {
+    /**
+     * The default JavaParser configuration.
+     */
+    DEFAULT,
+    /**
+     * Skips the language level validation, which the transformers do not need. Tokens, comments and the detection of
+     * the original line separator are still kept, as they are needed to print the snippet exactly like the default
+     * configuration does.
+     */
+    LEAN;
+
+    public ParserConfiguration createConfiguration() {
+        return switch (this) {
+            case DEFAULT -> new ParserConfiguration();
+            case LEAN -> new ParserConfiguration()
+                    .setLanguageLevel(ParserConfiguration.LanguageLevel.RAW);
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package org.jetbrains.research.codecocoon.transformer.parser;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.jetbrains.research.codecocoon.Snippet;
+
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Parses snippets into functions. A JavaParser instance can be reused for many parses, but not by multiple threads at
+ * the same time, so every parse takes a parser from a pool and returns it afterwards. Unlike a parser per thread, this
+ * also reuses the parsers when every snippet is transformed on its own virtual thread.
+ * <p>
+ * Methods and constructors need a different entry point of the parser. To avoid a failed parse, the header of the
+ * snippet is classified before parsing. See {@link FunctionClassifier}. Only if the snippet cannot be parsed as the
+ * classified kind, it is parsed as the other kind as well.
+ */
+public class SnippetParser {
+    public static final SnippetParser DEFAULT = new SnippetParser(ParserProfile.DEFAULT);
+
+    private final ParserProfile profile;
+    private final Queue<JavaParser> parsers = new ConcurrentLinkedQueue<>();
+
+    public SnippetParser(ParserProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Parses the snippet and remembers whether it is a method or a constructor, so the snippet can be parsed directly
+     * with the right entry point the next time.
+     */
+    public CallableDeclaration<?> parse(Snippet snippet) {
+        Optional<FunctionKind> kind = Optional.ofNullable(snippet.getFunctionKind());
+        if (kind.isEmpty()) kind = FunctionClassifier.classify(snippet.getCode());
+
+        CallableDeclaration<?> function = parse(snippet.getCode(), kind);
+
+        snippet.setFunctionKind(function.isConstructorDeclaration() ? FunctionKind.CONSTRUCTOR : FunctionKind.METHOD);
+        return function;
+    }
+
+    public CallableDeclaration<?> parse(String snippet) {
+        return parse(snippet, FunctionClassifier.classify(snippet));
+    }
+
+    /**
+     * Parses the snippet as the kind it was classified as, or as a method if it could not be classified. If that fails,
+     * the classification may have been wrong, so the snippet is parsed as the other kind once as well.
+     */
+    private CallableDeclaration<?> parse(String snippet, Optional<FunctionKind> kind) {
+        FunctionKind firstKind = kind.orElse(FunctionKind.METHOD);
+        Optional<CallableDeclaration<?>> function = parse(snippet, firstKind);
+        if (function.isEmpty()) {
+            function = parse(snippet, firstKind == FunctionKind.METHOD ? FunctionKind.CONSTRUCTOR : FunctionKind.METHOD);
+        }
+        return function.orElseThrow(() -> new IllegalArgumentException("Could not parse function: " + snippet));
+    }
+
+    private Optional<CallableDeclaration<?>> parse(String snippet, FunctionKind kind) {
+        return switch (kind) {
+            case METHOD -> parseMethod(snippet);
+            case CONSTRUCTOR -> parseConstructor(snippet);
+        };
+    }
+
+    private Optional<CallableDeclaration<?>> parseMethod(String snippet) {
+        ParseResult<MethodDeclaration> parseMethodResult = withParser(parser -> parser.parseMethodDeclaration(snippet));
+
+        if (parseMethodResult.isSuccessful()) {
+            return parseMethodResult.getResult().map(method -> method);
+        }
+        return Optional.empty();
+    }
+
+    private Optional<CallableDeclaration<?>> parseConstructor(String snippet) {
+        // Wrap the method snippet in a class, since a constructor can only be parsed in a class context.
+        String wrappedSnippet = "class Wrapper {" + snippet + "}";
+        ParseResult<CompilationUnit> parseResult = withParser(parser -> parser.parse(wrappedSnippet));
+
+        if (!parseResult.isSuccessful() || parseResult.getResult().isEmpty()) {
+            return Optional.empty();
+        }
+
+        CompilationUnit parsedClass = parseResult.getResult().get();
+        return parsedClass.findFirst(ConstructorDeclaration.class).map(constructor -> constructor);
+    }
+
+    private <T> T withParser(Function<JavaParser, T> parse) {
+        JavaParser parser = parsers.poll();
+        if (parser == null) parser = new JavaParser(profile.createConfiguration());
+        try {
+            return parse.apply(parser);
+        } finally {
+            parsers.offer(parser);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof SnippetParser otherParser) {
+            return profile == otherParser.profile;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "SnippetParser(" + profile + ")";
+    }
+}
@@ -0,0 +1,78 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.io.SnippetIO;
+import org.jetbrains.research.codecocoon.transformer.CompositeTransformer;
+import org.jetbrains.research.codecocoon.transformer.ExpandUnaryIncrementTransformer;
+import org.jetbrains.research.codecocoon.transformer.NestElseIfTransformer;
+import org.jetbrains.research.codecocoon.transformer.ReverseIfTransformer;
+import org.jetbrains.research.codecocoon.transformer.SnippetWrapper;
+import org.jetbrains.research.codecocoon.transformer.Transformer;
+import org.jetbrains.research.codecocoon.transformer.fortowhile.ForToWhileTransformer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParallelSnippetExecutorTest {
+
+    Transformer transformer = new CompositeTransformer(List.of(
+            new ForToWhileTransformer(),
+            new NestElseIfTransformer(),
+            new ReverseIfTransformer(),
+            new ExpandUnaryIncrementTransformer()
+    ));
+
+    @Test
+    public void testSameResultAsSequential() throws IOException, URISyntaxException {
+        List<Snippet> sequentialSnippets = loadDataset();
+        List<Snippet> parallelSnippets = loadDataset();
+
+        List<Snippet> sequentialOrder = new ArrayList<>();
+        List<Snippet> parallelOrder = new ArrayList<>();
+        new SequentialSnippetExecutor().transformAll(transformer, sequentialSnippets, sequentialOrder::add);
+        new ParallelSnippetExecutor(4).transformAll(transformer, parallelSnippets, parallelOrder::add);
+
+        assertEquals(sequentialSnippets.size(), parallelOrder.size());
+        for (int i = 0; i < sequentialSnippets.size(); i++) {
+            Snippet expected = sequentialOrder.get(i);
+            Snippet actual = parallelOrder.get(i);
+            assertSame(parallelSnippets.get(i), actual);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getCode(), actual.getCode());
+            assertEquals(expected.getTransformations(), actual.getTransformations());
+        }
+    }
+
+    @Test
+    public void testExceptionIsRethrown() {
+        List<Snippet> snippets = List.of(SnippetWrapper.wrap("void for"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelSnippetExecutor(2).transformAll(transformer, snippets, snippet -> {}));
+    }
+
+    @Test
+    public void testIllegalWorkers() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelSnippetExecutor(0));
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(new ParallelSnippetExecutor(4), new ParallelSnippetExecutor(4));
+    }
+
+    @Test
+    public void testNotEquals() {
+        assertNotEquals(new ParallelSnippetExecutor(4), new ParallelSnippetExecutor(2));
+    }
+
+    private List<Snippet> loadDataset() throws IOException, URISyntaxException {
+        String datasetPath = getClass().getClassLoader().getResource("defects4j-sf-updated.json").toURI().getPath();
+        return SnippetIO.loadSnippets(datasetPath);
+    }
+}
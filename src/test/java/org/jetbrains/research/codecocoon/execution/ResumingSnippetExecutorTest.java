@@ -0,0 +1,69 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.Transformer;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.*;
+
+public class ResumingSnippetExecutorTest {
+
+    Transformer mockTransformer = Mockito.mock(Transformer.class);
+
+    Snippet snippet1 = new Snippet("id1", "public void a() {}");
+    Snippet snippet2 = new Snippet("id2", "public void b() {}");
+    Snippet snippet3 = new Snippet("id3", "public void c() {}");
+    Snippet snippet4 = new Snippet("id4", "public void d() {}");
+    List<Snippet> snippets = List.of(snippet1, snippet2, snippet3, snippet4);
+
+    @Test
+    public void testSkipsTransformedSnippets() throws IOException {
+        Snippet recovered1 = new Snippet("id1", "public void e() {}");
+        Snippet recovered2 = new Snippet("id2", "public void f() {}");
+        SnippetExecutor executor = new ResumingSnippetExecutor(new SequentialSnippetExecutor(), Map.of("id1", recovered1, "id2", recovered2));
+
+        List<Snippet> order = new ArrayList<>();
+        executor.transformAll(mockTransformer, snippets, order::add);
+
+        assertEquals(List.of(recovered1, recovered2, snippet3, snippet4), order);
+        verify(mockTransformer, never()).transform(snippet1);
+        verify(mockTransformer, never()).transform(snippet2);
+        verify(mockTransformer).transform(snippet3);
+        verify(mockTransformer).transform(snippet4);
+    }
+
+    @Test
+    public void testKeepsInputOrder() throws IOException {
+        Snippet recovered2 = new Snippet("id2", "public void f() {}");
+        Snippet recovered4 = new Snippet("id4", "public void g() {}");
+        SnippetExecutor executor = new ResumingSnippetExecutor(new ParallelSnippetExecutor(2), Map.of("id2", recovered2, "id4", recovered4));
+
+        List<Snippet> order = new ArrayList<>();
+        executor.transformAll(mockTransformer, snippets, order::add);
+
+        assertEquals(4, order.size());
+        assertSame(snippet1, order.get(0));
+        assertSame(recovered2, order.get(1));
+        assertSame(snippet3, order.get(2));
+        assertSame(recovered4, order.get(3));
+    }
+
+    @Test
+    public void testNothingTransformed() throws IOException {
+        SnippetExecutor executor = new ResumingSnippetExecutor(new SequentialSnippetExecutor(), Map.of());
+
+        List<Snippet> order = new ArrayList<>();
+        executor.transformAll(mockTransformer, snippets, order::add);
+
+        assertEquals(snippets, order);
+        verify(mockTransformer, times(4)).transform(any());
+    }
+}
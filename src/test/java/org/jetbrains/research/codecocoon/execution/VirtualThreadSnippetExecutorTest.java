@@ -0,0 +1,138 @@
+package org.jetbrains.research.codecocoon.execution;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.io.SnippetIO;
+import org.jetbrains.research.codecocoon.transformer.CompositeTransformer;
+import org.jetbrains.research.codecocoon.transformer.ExpandUnaryIncrementTransformer;
+import org.jetbrains.research.codecocoon.transformer.NestElseIfTransformer;
+import org.jetbrains.research.codecocoon.transformer.ReverseIfTransformer;
+import org.jetbrains.research.codecocoon.transformer.SnippetWrapper;
+import org.jetbrains.research.codecocoon.transformer.Transformer;
+import org.jetbrains.research.codecocoon.transformer.fortowhile.ForToWhileTransformer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadSnippetExecutorTest {
+
+    Transformer transformer = new CompositeTransformer(List.of(
+            new ForToWhileTransformer(),
+            new NestElseIfTransformer(),
+            new ReverseIfTransformer(),
+            new ExpandUnaryIncrementTransformer()
+    ));
+
+    /**
+     * Uses virtual threads on Java 21 and later, and the fallback executor before that.
+     */
+    @Test
+    public void testSameResultAsSequential() throws IOException, URISyntaxException {
+        assertSameResultAsSequential(new VirtualThreadSnippetExecutor(16, new ParallelSnippetExecutor(4)));
+    }
+
+    /**
+     * Runs the bounded submission on platform threads, so it is tested on runtimes without virtual threads as well.
+     */
+    @Test
+    public void testSameResultAsSequentialOnPlatformThreads() throws IOException, URISyntaxException {
+        assertSameResultAsSequential(new VirtualThreadSnippetExecutor(16, new SequentialSnippetExecutor(),
+                () -> Optional.of(Executors.newCachedThreadPool())));
+    }
+
+    @Test
+    public void testBoundsSnippetsInFlight() throws IOException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Transformer waitingTransformer = new Transformer() {
+            @Override
+            public void transform(Snippet snippet) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+            }
+        };
+        List<Snippet> snippets = new ArrayList<>();
+        for (int i = 0; i < 100; i++) snippets.add(new Snippet(String.valueOf(i), "void test() {}"));
+        List<Snippet> order = new ArrayList<>();
+
+        new VirtualThreadSnippetExecutor(4, new SequentialSnippetExecutor(), () -> Optional.of(Executors.newCachedThreadPool()))
+                .transformAll(waitingTransformer, snippets, order::add);
+
+        assertEquals(snippets, order);
+        assertTrue(maxInFlight.get() <= 4);
+    }
+
+    @Test
+    public void testFallbackWithoutVirtualThreads() throws IOException {
+        List<Snippet> snippets = List.of(new Snippet("id", "void test() {}"));
+        List<Snippet> fallbackOrder = new ArrayList<>();
+        SnippetExecutor fallbackExecutor = (transformer, fallbackSnippets, listener) -> fallbackOrder.addAll(fallbackSnippets);
+
+        new VirtualThreadSnippetExecutor(16, fallbackExecutor, Optional::empty).transformAll(transformer, snippets, snippet -> {});
+
+        assertEquals(snippets, fallbackOrder);
+    }
+
+    @Test
+    public void testExceptionIsRethrown() {
+        List<Snippet> snippets = List.of(SnippetWrapper.wrap("void for"));
+        VirtualThreadSnippetExecutor executor = new VirtualThreadSnippetExecutor(2, new SequentialSnippetExecutor(),
+                () -> Optional.of(Executors.newCachedThreadPool()));
+
+        assertThrows(IllegalArgumentException.class, () -> executor.transformAll(transformer, snippets, snippet -> {}));
+    }
+
+    @Test
+    public void testIllegalSnippetsInFlight() {
+        assertThrows(IllegalArgumentException.class, () -> new VirtualThreadSnippetExecutor(0, new SequentialSnippetExecutor()));
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(new VirtualThreadSnippetExecutor(16, new ParallelSnippetExecutor(4)),
+                new VirtualThreadSnippetExecutor(16, new ParallelSnippetExecutor(4)));
+    }
+
+    @Test
+    public void testNotEquals() {
+        assertNotEquals(new VirtualThreadSnippetExecutor(16, new ParallelSnippetExecutor(4)),
+                new VirtualThreadSnippetExecutor(8, new ParallelSnippetExecutor(4)));
+        assertNotEquals(new VirtualThreadSnippetExecutor(16, new ParallelSnippetExecutor(4)), new ParallelSnippetExecutor(4));
+    }
+
+    private void assertSameResultAsSequential(SnippetExecutor executor) throws IOException, URISyntaxException {
+        List<Snippet> sequentialSnippets = loadDataset();
+        List<Snippet> virtualSnippets = loadDataset();
+
+        List<Snippet> sequentialOrder = new ArrayList<>();
+        List<Snippet> virtualOrder = new ArrayList<>();
+        new SequentialSnippetExecutor().transformAll(transformer, sequentialSnippets, sequentialOrder::add);
+        executor.transformAll(transformer, virtualSnippets, virtualOrder::add);
+
+        assertEquals(sequentialSnippets.size(), virtualOrder.size());
+        for (int i = 0; i < sequentialSnippets.size(); i++) {
+            Snippet expected = sequentialOrder.get(i);
+            Snippet actual = virtualOrder.get(i);
+            assertSame(virtualSnippets.get(i), actual);
+            assertEquals(expected.getCode(), actual.getCode());
+            assertEquals(expected.getTransformations(), actual.getTransformations());
+        }
+    }
+
+    private List<Snippet> loadDataset() throws IOException, URISyntaxException {
+        String datasetPath = getClass().getClassLoader().getResource("defects4j-sf-updated.json").toURI().getPath();
+        return SnippetIO.loadSnippets(datasetPath);
+    }
+}
@@ -0,0 +1,230 @@
+package org.jetbrains.research.codecocoon.factory;
+
+import org.jetbrains.research.codecocoon.io.cache.Cache;
+import org.jetbrains.research.codecocoon.llm.BudgetedLLM;
+import org.jetbrains.research.codecocoon.llm.ConcurrencyLimit;
+import org.jetbrains.research.codecocoon.llm.ConcurrencyLimitedLLM;
+import org.jetbrains.research.codecocoon.llm.HedgedLLM;
+import org.jetbrains.research.codecocoon.llm.LLM;
+import org.jetbrains.research.codecocoon.llm.LLMUnavailableException;
+import org.jetbrains.research.codecocoon.llm.OpenAI;
+import org.jetbrains.research.codecocoon.llm.PromptRecorder;
+import org.jetbrains.research.codecocoon.llm.RateLimit;
+import org.jetbrains.research.codecocoon.llm.RateLimitedLLM;
+import org.jetbrains.research.codecocoon.llm.TokenPrices;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LLMFactoryTest {
+
+    LLMFactory factory = new LLMFactory(Mockito.mock(CacheFactory.class));
+
+    @After
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Test
+    public void testCreateOpenAIWithBaseUrl() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "openai");
+        config.put("model", "local-model");
+        config.put("baseUrl", "http://localhost:8000/v1");
+
+        LLM expected = new OpenAI("local-model", Optional.of("http://localhost:8000/v1"));
+
+        LLM actual = factory.createLLMFrom(config);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreateOpenAIWithJsonResponses() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "openai");
+        config.put("model", "local-model");
+        config.put("baseUrl", "http://localhost:8000/v1");
+        config.put("responseFormat", "json");
+
+        LLM expected = new OpenAI("local-model", Optional.of("http://localhost:8000/v1"), true);
+
+        LLM actual = factory.createLLMFrom(config);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testUnknownResponseFormat() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "openai");
+        config.put("model", "local-model");
+        config.put("baseUrl", "http://localhost:8000/v1");
+        config.put("responseFormat", "xml");
+
+        assertThrows(IllegalArgumentException.class, () -> factory.createLLMFrom(config));
+    }
+
+    @Test
+    public void testCreateStubWithAnswer() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "stub");
+        config.put("model", "stub");
+        config.put("answer", "result");
+
+        LLM llm = factory.createLLMFrom(config);
+
+        assertEquals("result", llm.query("Generate a synonym for the variable \"value\""));
+    }
+
+    @Test
+    public void testCloseStopsStub() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "stub");
+        config.put("model", "stub");
+        config.put("answer", "result");
+        LLM llm = factory.createLLMFrom(config);
+
+        factory.close();
+
+        assertThrows(LLMUnavailableException.class, () -> llm.query("Generate a synonym for the variable \"value\""));
+    }
+
+    @Test
+    public void testCreateStubKeepsOriginalName() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "stub");
+        config.put("model", "stub");
+
+        LLM llm = factory.createLLMFrom(config);
+
+        assertEquals("value", llm.query("Generate a synonym for the variable \"value\""));
+    }
+
+    @Test
+    public void testConcurrencyLimitIsBelowRateLimit() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "openai");
+        config.put("model", "local-model");
+        config.put("baseUrl", "http://localhost:8000/v1");
+        config.put("maxConcurrentRequests", 32);
+        config.put("requestsPerMinute", 500);
+
+        LLM expected = new RateLimitedLLM(new ConcurrencyLimitedLLM(new OpenAI("local-model", Optional.of("http://localhost:8000/v1")), 32),
+                Optional.of(500L), Optional.empty(), BudgetedLLM.DEFAULT_RESERVED_COMPLETION_TOKENS, 5, 1000);
+
+        LLM actual = factory.createLLMFrom(config);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreateHedgedLLM() {
+        Map<String, Object> config = new HashMap<>();
+        Map<String, Object> hedgeConfig = new HashMap<>();
+        config.put("provider", "openai");
+        config.put("model", "local-model");
+        config.put("baseUrl", "http://localhost:8000/v1");
+        config.put("hedge", hedgeConfig);
+        hedgeConfig.put("provider", "openai");
+        hedgeConfig.put("model", "local-model");
+        hedgeConfig.put("baseUrl", "http://localhost:8001/v1");
+        hedgeConfig.put("percentile", 90);
+
+        LLM expected = new HedgedLLM(new OpenAI("local-model", Optional.of("http://localhost:8000/v1")),
+                new OpenAI("local-model", Optional.of("http://localhost:8001/v1")), 90, 1000);
+
+        LLM actual = factory.createLLMFrom(config);
+
+        assertEquals(expected, actual);
+        assertEquals(List.of(actual), factory.getHedgedLLMs());
+    }
+
+    @Test
+    public void testHedgeToSameProviderSharesLimits() {
+        Map<String, Object> config = new HashMap<>();
+        Map<String, Object> hedgeConfig = new HashMap<>();
+        config.put("provider", "openai");
+        config.put("model", "local-model");
+        config.put("baseUrl", "http://localhost:8000/v1");
+        config.put("maxConcurrentRequests", 32);
+        config.put("requestsPerMinute", 500);
+        config.put("hedge", hedgeConfig);
+        hedgeConfig.put("provider", "openai");
+        hedgeConfig.put("model", "local-model");
+        hedgeConfig.put("baseUrl", "http://localhost:8000/v1");
+
+        ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit(32);
+        RateLimit rateLimit = new RateLimit(Optional.of(500L), Optional.empty(), BudgetedLLM.DEFAULT_RESERVED_COMPLETION_TOKENS);
+        LLM openAI = new OpenAI("local-model", Optional.of("http://localhost:8000/v1"));
+        LLM hedgedLLM = new HedgedLLM(openAI, openAI, List.of(concurrencyLimit, rateLimit), 95, 1000);
+        LLM expected = new RateLimitedLLM(new ConcurrencyLimitedLLM(hedgedLLM, concurrencyLimit), rateLimit, 5, 1000);
+
+        LLM actual = factory.createLLMFrom(config);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreateBudgetedLLM() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "openai");
+        config.put("model", "local-model");
+        config.put("baseUrl", "http://localhost:8000/v1");
+        config.put("promptTokenPrice", 0.5);
+        config.put("completionTokenPrice", 2);
+        config.put("maxCost", 10);
+
+        LLM expected = new BudgetedLLM(new OpenAI("local-model", Optional.of("http://localhost:8000/v1"), false,
+                new TokenPrices(0.5, 2), factory.getUsageTracker()), factory.getUsageTracker(), Optional.empty(), Optional.of(10.0),
+                List.of(new TokenPrices(0.5, 2)), BudgetedLLM.DEFAULT_RESERVED_COMPLETION_TOKENS);
+
+        LLM actual = factory.createLLMFrom(config);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testPromptRecorderSkipsCachedPrompts() {
+        CacheFactory mockCacheFactory = Mockito.mock(CacheFactory.class);
+        Cache mockCache = Mockito.mock(Cache.class);
+        PromptRecorder recorder = new PromptRecorder();
+        LLMFactory recordingFactory = new LLMFactory(mockCacheFactory, Optional.of(recorder));
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "openai");
+        config.put("model", "ChatGPT4o-mini");
+        config.put("cachePath", ".llmcache.db");
+
+        when(mockCacheFactory.create(".llmcache.db")).thenReturn(mockCache);
+        when(mockCache.containsKey("cached")).thenReturn(true);
+        when(mockCache.get("cached")).thenReturn("answer");
+
+        LLM llm = recordingFactory.createLLMFrom(config);
+
+        assertEquals("answer", llm.query("cached"));
+        llm.query("Generate a synonym for the variable \"value\"");
+        assertEquals(List.of("Generate a synonym for the variable \"value\""), recorder.getPrompts());
+        verify(mockCache, never()).put(anyString(), anyString());
+    }
+
+    @Test
+    public void testUnknownProvider() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("provider", "unknown");
+        config.put("model", "model");
+
+        assertThrows(IllegalArgumentException.class, () -> factory.createLLMFrom(config));
+    }
+}
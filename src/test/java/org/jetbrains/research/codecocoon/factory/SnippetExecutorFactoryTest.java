@@ -0,0 +1,103 @@
+package org.jetbrains.research.codecocoon.factory;
+
+import org.jetbrains.research.codecocoon.execution.ParallelSnippetExecutor;
+import org.jetbrains.research.codecocoon.execution.SequentialSnippetExecutor;
+import org.jetbrains.research.codecocoon.execution.SnippetExecutor;
+import org.jetbrains.research.codecocoon.execution.VirtualThreadSnippetExecutor;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class SnippetExecutorFactoryTest {
+
+    SnippetExecutorFactory factory = new SnippetExecutorFactory();
+
+    @Test
+    public void testNoExecutionConfig() {
+        SnippetExecutor actual = factory.createSnippetExecutorFrom(new HashMap<>());
+
+        assertEquals(new SequentialSnippetExecutor(), actual);
+    }
+
+    @Test
+    public void testSingleWorker() {
+        SnippetExecutor actual = factory.createSnippetExecutorFrom(createExecutionConfig(1));
+
+        assertEquals(new SequentialSnippetExecutor(), actual);
+    }
+
+    @Test
+    public void testMultipleWorkers() {
+        SnippetExecutor actual = factory.createSnippetExecutorFrom(createExecutionConfig(8));
+
+        assertEquals(new ParallelSnippetExecutor(8), actual);
+    }
+
+    @Test
+    public void testWorkersForLLM() {
+        Map<String, Object> config = createExecutionConfig("llm");
+        config.put("synonymGenerator", Map.of("name", "llmSynonymGenerator", "llm", Map.of("maxConcurrentRequests", 64)));
+
+        SnippetExecutor actual = factory.createSnippetExecutorFrom(config);
+
+        assertEquals(new ParallelSnippetExecutor(64 + Runtime.getRuntime().availableProcessors()), actual);
+    }
+
+    @Test
+    public void testWorkersForLLMWithoutLimit() {
+        Map<String, Object> config = createExecutionConfig("llm");
+        config.put("synonymGenerator", Map.of("name", "llmSynonymGenerator", "llm", Map.of("provider", "openai")));
+
+        assertThrows(IllegalArgumentException.class, () -> factory.createSnippetExecutorFrom(config));
+    }
+
+    @Test
+    public void testInvalidWorkers() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> factory.createSnippetExecutorFrom(createExecutionConfig("many")));
+
+        assertTrue(exception.getMessage().contains("execution.workers"));
+    }
+
+    @Test
+    public void testVirtualThreads() {
+        Map<String, Object> config = createExecutionConfig(8);
+        ((Map<String, Object>) config.get("execution")).put("threads", "virtual");
+        ((Map<String, Object>) config.get("execution")).put("maxSnippetsInFlight", 500);
+
+        SnippetExecutor actual = factory.createSnippetExecutorFrom(config);
+
+        assertEquals(new VirtualThreadSnippetExecutor(500, new ParallelSnippetExecutor(8)), actual);
+    }
+
+    @Test
+    public void testVirtualThreadsDefaultSnippetsInFlight() {
+        Map<String, Object> config = createExecutionConfig(1);
+        ((Map<String, Object>) config.get("execution")).put("threads", "virtual");
+
+        SnippetExecutor actual = factory.createSnippetExecutorFrom(config);
+
+        assertEquals(new VirtualThreadSnippetExecutor(SnippetExecutorFactory.DEFAULT_MAX_SNIPPETS_IN_FLIGHT, new SequentialSnippetExecutor()), actual);
+    }
+
+    @Test
+    public void testUnknownThreads() {
+        Map<String, Object> config = createExecutionConfig(8);
+        ((Map<String, Object>) config.get("execution")).put("threads", "green");
+
+        assertThrows(IllegalArgumentException.class, () -> factory.createSnippetExecutorFrom(config));
+    }
+
+    private Map<String, Object> createExecutionConfig(Object workers) {
+        Map<String, Object> config = new HashMap<>();
+        Map<String, Object> executionConfig = new HashMap<>();
+        executionConfig.put("workers", workers);
+        config.put("execution", executionConfig);
+        return config;
+    }
+}
@@ -1,9 +1,11 @@
 package org.jetbrains.research.codecocoon.factory;
 
-import net.sf.extjwnl.JWNLException;
 import org.jetbrains.research.codecocoon.llm.LLM;
+import org.jetbrains.research.codecocoon.llm.UsageTracker;
+import org.jetbrains.research.codecocoon.synonyms.ContextSlicer;
 import org.jetbrains.research.codecocoon.synonyms.LLMSynonymGenerator;
 import org.jetbrains.research.codecocoon.synonyms.LexicalSynonymGenerator;
+import org.jetbrains.research.codecocoon.synonyms.MemoizingSynonymGenerator;
 import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -13,6 +15,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.when;
 
 public class SynonymGeneratorFactoryTest {
@@ -41,7 +44,84 @@ public class SynonymGeneratorFactoryTest {
     }
 
     @Test
-    public void testCreateLexicalSynonymGenerator() throws JWNLException {
+    public void testCreateLLMSynonymGeneratorWithOptions() {
+        Map<String, Object> parentConfig = new HashMap<>();
+        Map<String, Object> llmConfig = new HashMap<>();
+        Map<String, Object> synonymGeneratorConfig = new HashMap<>();
+        parentConfig.put("synonymGenerator", synonymGeneratorConfig);
+        synonymGeneratorConfig.put("name", "llmSynonymGenerator");
+        synonymGeneratorConfig.put("contextTokenBudget", 200);
+        synonymGeneratorConfig.put("candidates", 3);
+        synonymGeneratorConfig.put("llm", llmConfig);
+
+        LLM mockLLM = Mockito.mock(LLM.class);
+        Optional<SynonymGenerator> expected = Optional.of(new LLMSynonymGenerator(mockLLM, Optional.of(new ContextSlicer(200)), 3));
+
+        when(mockLLMFactory.createLLMFrom(llmConfig)).thenReturn(mockLLM);
+
+        Optional<SynonymGenerator> actual = factory.createSynonymGeneratorFrom(parentConfig);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreateStructuredLLMSynonymGenerator() {
+        Map<String, Object> parentConfig = new HashMap<>();
+        Map<String, Object> llmConfig = new HashMap<>();
+        Map<String, Object> synonymGeneratorConfig = new HashMap<>();
+        parentConfig.put("synonymGenerator", synonymGeneratorConfig);
+        synonymGeneratorConfig.put("name", "llmSynonymGenerator");
+        synonymGeneratorConfig.put("structured", true);
+        synonymGeneratorConfig.put("repairAttempts", 2);
+        synonymGeneratorConfig.put("llm", llmConfig);
+
+        LLM mockLLM = Mockito.mock(LLM.class);
+        Optional<SynonymGenerator> expected = Optional.of(new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, true, 2));
+
+        when(mockLLMFactory.createLLMFrom(Map.of("responseFormat", "json"))).thenReturn(mockLLM);
+
+        Optional<SynonymGenerator> actual = factory.createSynonymGeneratorFrom(parentConfig);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreateLLMSynonymGeneratorWithLexicalBudgetFallback() {
+        Map<String, Object> parentConfig = new HashMap<>();
+        Map<String, Object> llmConfig = new HashMap<>();
+        Map<String, Object> synonymGeneratorConfig = new HashMap<>();
+        parentConfig.put("synonymGenerator", synonymGeneratorConfig);
+        synonymGeneratorConfig.put("name", "llmSynonymGenerator");
+        synonymGeneratorConfig.put("budgetExceeded", "lexical");
+        synonymGeneratorConfig.put("llm", llmConfig);
+
+        LLM mockLLM = Mockito.mock(LLM.class);
+        UsageTracker usageTracker = new UsageTracker();
+        Optional<SynonymGenerator> expected = Optional.of(new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, false,
+                LLMSynonymGenerator.DEFAULT_REPAIR_ATTEMPTS, usageTracker, Optional.of(new LexicalSynonymGenerator())));
+
+        when(mockLLMFactory.createLLMFrom(llmConfig)).thenReturn(mockLLM);
+        when(mockLLMFactory.getUsageTracker()).thenReturn(usageTracker);
+
+        Optional<SynonymGenerator> actual = factory.createSynonymGeneratorFrom(parentConfig);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testUnknownBudgetFallback() {
+        Map<String, Object> parentConfig = new HashMap<>();
+        Map<String, Object> synonymGeneratorConfig = new HashMap<>();
+        parentConfig.put("synonymGenerator", synonymGeneratorConfig);
+        synonymGeneratorConfig.put("name", "llmSynonymGenerator");
+        synonymGeneratorConfig.put("budgetExceeded", "stop");
+        synonymGeneratorConfig.put("llm", new HashMap<>());
+
+        assertThrows(IllegalArgumentException.class, () -> factory.createSynonymGeneratorFrom(parentConfig));
+    }
+
+    @Test
+    public void testCreateLexicalSynonymGenerator() {
         Map<String, Object> parentConfig = new HashMap<>();
         Map<String, Object> synonymGeneratorConfig = new HashMap<>();
         parentConfig.put("synonymGenerator", synonymGeneratorConfig);
@@ -54,6 +134,37 @@ public class SynonymGeneratorFactoryTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testCreateSplittingLexicalSynonymGenerator() {
+        Map<String, Object> parentConfig = new HashMap<>();
+        Map<String, Object> synonymGeneratorConfig = new HashMap<>();
+        parentConfig.put("synonymGenerator", synonymGeneratorConfig);
+        synonymGeneratorConfig.put("name", "lexicalSynonymGenerator");
+        synonymGeneratorConfig.put("splitIdentifiers", true);
+        synonymGeneratorConfig.put("maxMemoizedTokens", 1000);
+
+        Optional<SynonymGenerator> expected = Optional.of(new LexicalSynonymGenerator(true, 1000));
+
+        Optional<SynonymGenerator> actual = factory.createSynonymGeneratorFrom(parentConfig);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreateMemoizingSynonymGenerator() {
+        Map<String, Object> parentConfig = new HashMap<>();
+        Map<String, Object> synonymGeneratorConfig = new HashMap<>();
+        parentConfig.put("synonymGenerator", synonymGeneratorConfig);
+        synonymGeneratorConfig.put("name", "lexicalSynonymGenerator");
+        synonymGeneratorConfig.put("memoSize", 5000);
+
+        Optional<SynonymGenerator> expected = Optional.of(new MemoizingSynonymGenerator(new LexicalSynonymGenerator(), 5000));
+
+        Optional<SynonymGenerator> actual = factory.createSynonymGeneratorFrom(parentConfig);
+
+        assertEquals(expected, actual);
+    }
+
     @Test
     public void testNoSynonymGenerator() {
         Map<String, Object> synonymGeneratorConfig = new HashMap<>();
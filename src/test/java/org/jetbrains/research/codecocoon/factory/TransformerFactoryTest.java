@@ -5,13 +5,17 @@ import org.jetbrains.research.codecocoon.transformer.*;
 import org.jetbrains.research.codecocoon.transformer.fortowhile.ForToWhileTransformer;
 import org.jetbrains.research.codecocoon.transformer.identifiers.FunctionNameTransformer;
 import org.jetbrains.research.codecocoon.transformer.identifiers.ParameterNameTransformer;
+import org.jetbrains.research.codecocoon.transformer.identifiers.SynonymContext;
 import org.jetbrains.research.codecocoon.transformer.identifiers.VariableNameTransformer;
+import org.jetbrains.research.codecocoon.transformer.parser.ParserProfile;
+import org.jetbrains.research.codecocoon.transformer.parser.SnippetParser;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThrows;
 
 
@@ -49,6 +53,65 @@ public class TransformerFactoryTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testCreateCompositeTransformerWithLeanParser() {
+        Map<String, Object> config = createTransformerConfigs(List.of("forToWhileTransformer"));
+        config.put("parser", "lean");
+
+        Transformer expected = new CompositeTransformer(List.of(new ForToWhileTransformer()), new SnippetParser(ParserProfile.LEAN));
+
+        Transformer actual = factory.createCompositeTransformerFrom(config);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreateCompositeTransformerWithBatchedSynonyms() {
+        Map<String, Object> config = createTransformerConfigs(List.of("variableNameTransformer"));
+        config.put("synonymGenerator", Map.of("batch", true));
+
+        Transformer expected = new CompositeTransformer(List.of(new VariableNameTransformer(mockSynonymGenerator)), SnippetParser.DEFAULT, true);
+
+        Transformer actual = factory.createCompositeTransformerFrom(config);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCreateCompositeTransformerWithOriginalSynonymContext() {
+        Map<String, Object> config = createTransformerConfigs(List.of("functionNameTransformer", "variableNameTransformer"));
+        config.put("synonymGenerator", Map.of("context", "original"));
+
+        Transformer expected = new CompositeTransformer(List.of(
+                new FunctionNameTransformer(mockSynonymGenerator, SynonymContext.ORIGINAL),
+                new VariableNameTransformer(mockSynonymGenerator, SynonymContext.ORIGINAL)
+        ));
+
+        Transformer actual = factory.createCompositeTransformerFrom(config);
+
+        assertEquals(expected, actual);
+        assertNotEquals(new CompositeTransformer(List.of(
+                new FunctionNameTransformer(mockSynonymGenerator),
+                new VariableNameTransformer(mockSynonymGenerator)
+        )), actual);
+    }
+
+    @Test
+    public void testUnknownSynonymContext() {
+        Map<String, Object> config = createTransformerConfigs(List.of("variableNameTransformer"));
+        config.put("synonymGenerator", Map.of("context", "unknown"));
+
+        assertThrows(RuntimeException.class, () -> factory.createCompositeTransformerFrom(config));
+    }
+
+    @Test
+    public void testUnknownParser() {
+        Map<String, Object> config = createTransformerConfigs(List.of("forToWhileTransformer"));
+        config.put("parser", "unknown");
+
+        assertThrows(RuntimeException.class, () -> factory.createCompositeTransformerFrom(config));
+    }
+
     @Test
     public void testCreateForToWhileTransformer() {
         Map<String, Object> config = createTransformerConfig("forToWhileTransformer");
@@ -0,0 +1,84 @@
+package org.jetbrains.research.codecocoon.io;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+public class BatchIOTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRequestFormat() throws IOException {
+        String requestsPath = folder.newFile().getPath();
+
+        BatchIO.writeRequests(requestsPath, "gpt-4o-mini", false, List.of("first\nprompt", "second prompt"));
+
+        List<String> lines = Files.readAllLines(Path.of(requestsPath));
+        assertEquals(2, lines.size());
+        JsonObject request = JsonParser.parseString(lines.get(1)).getAsJsonObject();
+        assertEquals("prompt-1", request.get("custom_id").getAsString());
+        assertEquals("POST", request.get("method").getAsString());
+        assertEquals("/v1/chat/completions", request.get("url").getAsString());
+        assertEquals("gpt-4o-mini", request.getAsJsonObject("body").get("model").getAsString());
+        assertFalse(request.getAsJsonObject("body").has("response_format"));
+        assertEquals(Map.of("prompt-0", "first\nprompt", "prompt-1", "second prompt"), BatchIO.readRequests(requestsPath));
+    }
+
+    @Test
+    public void testJsonRequestFormat() throws IOException {
+        String requestsPath = folder.newFile().getPath();
+
+        BatchIO.writeRequests(requestsPath, "gpt-4o-mini", true, List.of("structured prompt"));
+
+        JsonObject request = JsonParser.parseString(Files.readAllLines(Path.of(requestsPath)).get(0)).getAsJsonObject();
+        JsonObject responseFormat = request.getAsJsonObject("body").getAsJsonObject("response_format");
+        assertEquals("json_object", responseFormat.get("type").getAsString());
+        assertEquals(Map.of("prompt-0", "structured prompt"), BatchIO.readRequests(requestsPath));
+    }
+
+    @Test
+    public void testReadResponses() throws IOException {
+        String requestsPath = folder.newFile().getPath();
+        String responsesPath = folder.newFile().getPath();
+        BatchIO.writeRequests(requestsPath, "gpt-4o-mini", false, List.of("first prompt", "second prompt", "third prompt"));
+        // Responses are not necessarily in the same order as the requests, and some requests may fail.
+        Files.writeString(Path.of(responsesPath), String.join("\n",
+                response("prompt-2", 200, "third answer"),
+                response("prompt-0", 200, "first answer"),
+                response("prompt-1", 500, "error"),
+                "{\"id\": \"batch_req_3\", \"custom_id\": \"prompt-3\", \"response\": null, \"error\": {\"code\": \"expired\"}}",
+                ""));
+
+        Map<String, String> answers = BatchIO.readResponses(requestsPath, responsesPath);
+
+        assertEquals(Map.of("first prompt", "first answer", "third prompt", "third answer"), answers);
+    }
+
+    @Test
+    public void testInvalidLine() throws IOException {
+        String requestsPath = folder.newFile().getPath();
+        Files.writeString(Path.of(requestsPath), "not json");
+
+        assertThrows(IllegalArgumentException.class, () -> BatchIO.readRequests(requestsPath));
+    }
+
+    private String response(String customId, int statusCode, String answer) {
+        return "{\"id\": \"batch_req_" + customId + "\", \"custom_id\": \"" + customId + "\", \"response\": {\"status_code\": " + statusCode
+                + ", \"body\": {\"object\": \"chat.completion\", \"choices\": [{\"index\": 0, \"message\": {\"role\": \"assistant\", \"content\": \""
+                + answer + "\"}}]}}, \"error\": null}";
+    }
+}
@@ -0,0 +1,95 @@
+package org.jetbrains.research.codecocoon.io;
+
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.Transformation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnippetIOTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecoverCompleteOutput() throws IOException {
+        String path = folder.newFile().getPath();
+        SnippetIO.writeSnippets(path, createSnippets());
+
+        Map<String, Snippet> recovered = SnippetIO.recoverSnippets(path);
+
+        assertEquals(List.of("id1", "id2", "id3"), List.copyOf(recovered.keySet()));
+        assertEquals(Integer.valueOf(1), recovered.get("id2").getTransformations().get(Transformation.ReverseIf));
+        assertEquals(Map.of("value", "result"), recovered.get("id2").variableMapping);
+    }
+
+    @Test
+    public void testRecoverTruncatedOutput() throws IOException {
+        String path = folder.newFile().getPath();
+        SnippetIO.writeSnippets(path, createSnippets());
+        String output = Files.readString(Path.of(path));
+        // Cut the file in the middle of the last snippet.
+        Files.writeString(Path.of(path), output.substring(0, output.indexOf("id3")));
+
+        Map<String, Snippet> recovered = SnippetIO.recoverSnippets(path);
+
+        assertEquals(List.of("id1", "id2"), List.copyOf(recovered.keySet()));
+    }
+
+    @Test
+    public void testRecoverOutputAndPartialFile() throws IOException {
+        String path = folder.newFile().getPath();
+        List<Snippet> snippets = createSnippets();
+        SnippetIO.writeSnippets(path, snippets.subList(0, 2));
+        // A resumed run that was interrupted again, after writing the recovered snippets and one new snippet.
+        Snippet changedSnippet = new Snippet("id2", "public int test() {\n  return 2;\n}");
+        SnippetIO.writeSnippets(SnippetWriter.getPartialFilePath(path), List.of(snippets.get(0), changedSnippet, snippets.get(2)));
+
+        Map<String, Snippet> recovered = SnippetIO.recoverSnippets(path);
+
+        assertEquals(List.of("id1", "id2", "id3"), List.copyOf(recovered.keySet()));
+        assertEquals(changedSnippet.getCode(), recovered.get("id2").getCode());
+    }
+
+    @Test
+    public void testCorruptOutputIsReported() throws IOException {
+        String path = folder.newFile().getPath();
+        SnippetIO.writeSnippets(path, createSnippets());
+        String output = Files.readString(Path.of(path));
+        // Break the second snippet, but keep the third one intact.
+        Files.writeString(Path.of(path), output.replaceFirst("\"id2\"", "\"id2\" ,,"));
+
+        try {
+            SnippetIO.recoverSnippets(path);
+            fail("A corrupt snippet in the middle of the output should be reported");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("after the first 1 snippets"));
+        }
+    }
+
+    @Test
+    public void testRecoverMissingOutput() throws IOException {
+        Map<String, Snippet> recovered = SnippetIO.recoverSnippets(folder.getRoot().getPath() + "/missing.json");
+
+        assertTrue(recovered.isEmpty());
+    }
+
+    private List<Snippet> createSnippets() {
+        Snippet snippet1 = new Snippet("id1", "public int test() {\n  return 1;\n}");
+        Snippet snippet2 = new Snippet("id2", "public int test() {\n  int result = 2;\n  return result;\n}");
+        Snippet snippet3 = new Snippet("id3", "public int test() {\n  return 3;\n}");
+        snippet2.addTransformation(Transformation.ReverseIf);
+        snippet2.setVariableMapping(Map.of("value", "result"));
+        return List.of(snippet1, snippet2, snippet3);
+    }
+}
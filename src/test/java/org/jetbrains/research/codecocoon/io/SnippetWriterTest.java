@@ -0,0 +1,153 @@
+package org.jetbrains.research.codecocoon.io;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.transformer.Transformation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SnippetWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameOutputAsFullRewrite() throws IOException {
+        List<Snippet> snippets = createSnippets();
+        String expectedPath = folder.newFile().getPath();
+        String actualPath = folder.newFile().getPath();
+
+        SnippetIO.writeSnippets(expectedPath, snippets);
+        try (SnippetWriter writer = new SnippetWriter(actualPath, 2)) {
+            for (Snippet snippet : snippets) writer.write(snippet);
+        }
+
+        assertEquals(Files.readString(Path.of(expectedPath)), Files.readString(Path.of(actualPath)));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        String expectedPath = folder.newFile().getPath();
+        String actualPath = folder.newFile().getPath();
+
+        SnippetIO.writeSnippets(expectedPath, List.of());
+        new SnippetWriter(actualPath, 2).close();
+
+        assertEquals(Files.readString(Path.of(expectedPath)), Files.readString(Path.of(actualPath)));
+    }
+
+    @Test
+    public void testOnlyFlushedBatchesAreWritten() throws IOException {
+        String path = folder.newFile().getPath();
+
+        SnippetWriter writer = new SnippetWriter(path, 2);
+        for (Snippet snippet : createSnippets()) writer.write(snippet);
+
+        // The third snippet is still in the unflushed batch. Closing the array makes the partial file valid again.
+        String partialOutput = Files.readString(Path.of(SnippetWriter.getPartialFilePath(path))) + "\n]";
+        JsonArray recovered = new Gson().fromJson(partialOutput, JsonArray.class);
+
+        assertEquals(2, recovered.size());
+        assertEquals("id2", recovered.get(1).getAsJsonObject().get("id").getAsString());
+    }
+
+    @Test
+    public void testOutputIsKeptUntilClosed() throws IOException {
+        String path = folder.newFile().getPath();
+        Files.writeString(Path.of(path), "previous output");
+
+        SnippetWriter writer = new SnippetWriter(path, 1, Map.of());
+        for (Snippet snippet : createSnippets()) writer.write(snippet);
+        assertEquals("previous output", Files.readString(Path.of(path)));
+
+        writer.close();
+        assertEquals(3, new Gson().fromJson(Files.readString(Path.of(path)), JsonArray.class).size());
+        assertFalse(Files.exists(Path.of(SnippetWriter.getPartialFilePath(path))));
+    }
+
+    @Test
+    public void testAbortKeepsOutput() throws IOException {
+        String path = folder.newFile().getPath();
+        SnippetIO.writeSnippets(path, createSnippets().subList(0, 1));
+        String previousOutput = Files.readString(Path.of(path));
+
+        SnippetWriter writer = new SnippetWriter(path, 2, SnippetIO.recoverSnippets(path));
+        for (Snippet snippet : createSnippets()) writer.write(snippet);
+        writer.abort();
+
+        assertEquals(previousOutput, Files.readString(Path.of(path)));
+        assertEquals(List.of("id1", "id2", "id3"), List.copyOf(SnippetIO.recoverSnippets(path).keySet()));
+    }
+
+    @Test
+    public void testKilledResumeKeepsRecoveredSnippets() throws IOException {
+        String path = folder.newFile().getPath();
+        List<Snippet> snippets = createSnippets();
+        SnippetWriter interruptedWriter = new SnippetWriter(path, 1);
+        for (Snippet snippet : snippets) interruptedWriter.write(snippet);
+        interruptedWriter.abort();
+
+        // The resumed run is killed after writing one of the recovered snippets again, so it is never aborted.
+        SnippetWriter resumedWriter = new SnippetWriter(path, 1, SnippetIO.recoverSnippets(path));
+        resumedWriter.write(snippets.get(0));
+
+        assertEquals(List.of("id1", "id2", "id3"), List.copyOf(SnippetIO.recoverSnippets(path).keySet()));
+    }
+
+    @Test
+    public void testPartialFileIsReplacedOnceRecoveredSnippetsAreWritten() throws IOException {
+        String path = folder.newFile().getPath();
+        List<Snippet> snippets = createSnippets();
+        SnippetWriter interruptedWriter = new SnippetWriter(path, 10);
+        interruptedWriter.write(snippets.get(0));
+        interruptedWriter.abort();
+
+        SnippetWriter resumedWriter = new SnippetWriter(path, 10, SnippetIO.recoverSnippets(path));
+        resumedWriter.write(snippets.get(0));
+        Snippet changedSnippet = new Snippet("id2", "public int test() {\n  return 4;\n}");
+        resumedWriter.write(changedSnippet);
+        resumedWriter.abort();
+
+        Map<String, Snippet> recovered = SnippetIO.recoverSnippets(path);
+        assertEquals(List.of("id1", "id2"), List.copyOf(recovered.keySet()));
+        assertEquals(changedSnippet.getCode(), recovered.get("id2").getCode());
+    }
+
+    @Test
+    public void testResumeAfterCrashedFreshRunIgnoresEarlierRun() throws IOException {
+        String path = folder.newFile().getPath();
+        // A complete run, for example with other transformers.
+        try (SnippetWriter writer = new SnippetWriter(path, 1)) {
+            for (Snippet snippet : createSnippets()) writer.write(snippet);
+        }
+
+        // A fresh run that crashes after its first snippet.
+        Snippet newSnippet = new Snippet("id1", "public int test() {\n  return 5;\n}");
+        SnippetWriter writer = new SnippetWriter(path, 1);
+        writer.write(newSnippet);
+        writer.abort();
+
+        Map<String, Snippet> recovered = SnippetIO.recoverSnippets(path);
+        assertEquals(List.of("id1"), List.copyOf(recovered.keySet()));
+        assertEquals(newSnippet.getCode(), recovered.get("id1").getCode());
+    }
+
+    private List<Snippet> createSnippets() {
+        Snippet snippet1 = new Snippet("id1", "public int test() {\n  return 1;\n}");
+        Snippet snippet2 = new Snippet("id2", "public int test() {\n  return 2;\n}");
+        Snippet snippet3 = new Snippet("id3", "public int test() {\n  return 3;\n}");
+        snippet2.addTransformation(Transformation.ReverseIf);
+        return List.of(snippet1, snippet2, snippet3);
+    }
+}
@@ -0,0 +1,153 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class BudgetedLLMTest {
+
+    @Test
+    public void testWithinBudget() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        UsageTracker usageTracker = new UsageTracker();
+        BudgetedLLM budgetedLLM = new BudgetedLLM(mockLLM, usageTracker, Optional.of(100L), Optional.empty(), List.of(TokenPrices.FREE), 10);
+
+        when(mockLLM.query("prompt")).thenReturn("answer");
+        // The prompt is estimated at 2 tokens, plus 10 reserved completion tokens.
+        usageTracker.record("earlier prompt", new Usage(1, 60, 28, 0));
+
+        assertEquals("answer", budgetedLLM.query("prompt"));
+        assertFalse(budgetedLLM.isExceeded());
+    }
+
+    @Test
+    public void testTokensExceeded() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        UsageTracker usageTracker = new UsageTracker();
+        BudgetedLLM budgetedLLM = new BudgetedLLM(mockLLM, usageTracker, Optional.of(100L), Optional.empty(), List.of(TokenPrices.FREE), 10);
+
+        usageTracker.record("earlier prompt", new Usage(1, 60, 40, 0));
+
+        assertThrows(BudgetExceededException.class, () -> budgetedLLM.query("prompt"));
+        verify(mockLLM, never()).query(anyString());
+    }
+
+    @Test
+    public void testReservationExceeds() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        UsageTracker usageTracker = new UsageTracker();
+        BudgetedLLM budgetedLLM = new BudgetedLLM(mockLLM, usageTracker, Optional.of(100L), Optional.empty(), List.of(TokenPrices.FREE), 10);
+
+        usageTracker.record("earlier prompt", new Usage(1, 60, 29, 0));
+
+        // The budget is not spent yet, but the estimate of the next request does not fit in it anymore.
+        assertFalse(budgetedLLM.isExceeded());
+        assertThrows(BudgetExceededException.class, () -> budgetedLLM.query("prompt"));
+        verify(mockLLM, never()).query(anyString());
+    }
+
+    @Test
+    public void testEstimateCoversHedge() {
+        BudgetedLLM budgetedLLM = new BudgetedLLM(Mockito.mock(LLM.class), new UsageTracker(), Optional.empty(), Optional.of(1.0),
+                List.of(new TokenPrices(1, 2), new TokenPrices(3, 4)), 10);
+
+        assertEquals(new Usage(2, 4, 20, new TokenPrices(1, 2).cost(2, 10) + new TokenPrices(3, 4).cost(2, 10)),
+                budgetedLLM.estimate("prompt"));
+    }
+
+    @Test
+    public void testConcurrentQueriesStayWithinBudget() throws Exception {
+        UsageTracker usageTracker = new UsageTracker();
+        // Every request is slow and uses exactly its estimate: 2 prompt tokens and 10 completion tokens.
+        LLM slowLLM = prompt -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            usageTracker.record(prompt, new Usage(1, 2, 10, 0));
+            return "answer";
+        };
+        BudgetedLLM budgetedLLM = new BudgetedLLM(slowLLM, usageTracker, Optional.of(100L), Optional.empty(), List.of(TokenPrices.FREE), 10);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            futures.add(executorService.submit(() -> {
+                try {
+                    budgetedLLM.query("prompt");
+                } catch (BudgetExceededException e) {
+                    // Expected once the budget is reserved.
+                }
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        executorService.shutdown();
+
+        // Without reservations, all 16 threads would pass the check before the first request is charged.
+        Usage total = usageTracker.getTotal();
+        assertTrue(total.toString(), total.totalTokens() <= 100);
+        assertEquals(8, total.requests());
+    }
+
+    @Test
+    public void testCostExceeded() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        UsageTracker usageTracker = new UsageTracker();
+        BudgetedLLM budgetedLLM = new BudgetedLLM(mockLLM, usageTracker, Optional.empty(), Optional.of(0.01), List.of(TokenPrices.FREE), 10);
+
+        usageTracker.record("earlier prompt", new Usage(1, 10_000, 10_000, new TokenPrices(0.15, 0.60).cost(10_000, 10_000)));
+        assertFalse(budgetedLLM.isExceeded());
+
+        usageTracker.record("another prompt", new Usage(1, 0, 10_000, new TokenPrices(0.15, 0.60).cost(0, 10_000)));
+        assertTrue(budgetedLLM.isExceeded());
+    }
+
+    @Test
+    public void testTakeUsage() {
+        UsageTracker usageTracker = new UsageTracker();
+
+        usageTracker.claim("prompt");
+        usageTracker.record("prompt", new Usage(1, 10, 2, 0.5));
+        usageTracker.record("prompt", new Usage(1, 10, 3, 0.5));
+        usageTracker.record("other prompt", new Usage(1, 5, 1, 0));
+
+        assertEquals(new Usage(2, 20, 5, 1.0), usageTracker.takeUsage("prompt"));
+        assertEquals(Usage.NONE, usageTracker.takeUsage("prompt"));
+        assertEquals(Usage.NONE, usageTracker.takeUsage("other prompt"));
+        assertEquals(new Usage(3, 25, 6, 1.0), usageTracker.getTotal());
+    }
+
+    @Test
+    public void testOnlyClaimedUsageIsKept() {
+        UsageTracker usageTracker = new UsageTracker();
+
+        usageTracker.record("prompt", new Usage(1, 10, 2, 0.5));
+        usageTracker.claim("prompt");
+        usageTracker.claim("prompt");
+        usageTracker.record("prompt", new Usage(1, 10, 3, 0.5));
+
+        // The usage from before the claim only counts towards the total, and the second claim gets nothing.
+        assertEquals(new Usage(1, 10, 3, 0.5), usageTracker.takeUsage("prompt"));
+        assertEquals(Usage.NONE, usageTracker.takeUsage("prompt"));
+        usageTracker.record("prompt", new Usage(1, 10, 3, 0.5));
+        assertEquals(Usage.NONE, usageTracker.takeUsage("prompt"));
+        assertEquals(new Usage(3, 30, 8, 1.5), usageTracker.getTotal());
+    }
+
+    @Test
+    public void testTokenPricesForModel() {
+        assertEquals(new TokenPrices(0.15, 0.60), TokenPrices.forModel("ChatGPT4o-mini"));
+        assertEquals(TokenPrices.FREE, TokenPrices.forModel("qwen2.5-coder-7b-instruct"));
+        assertThrows(IllegalArgumentException.class, () -> new TokenPrices(-1, 0));
+    }
+}
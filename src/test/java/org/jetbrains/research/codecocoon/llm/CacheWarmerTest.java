@@ -0,0 +1,111 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.jetbrains.research.codecocoon.io.cache.Cache;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class CacheWarmerTest {
+
+    @Test
+    public void testSkipsCachedPrompts() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        Cache cache = new MapCache();
+        cache.put("cached", "answer");
+        CacheWarmer cacheWarmer = new CacheWarmer(mockLLM, cache, 4);
+
+        when(mockLLM.query("first")).thenReturn("first answer");
+        when(mockLLM.query("second")).thenReturn("second answer");
+
+        AtomicInteger steps = new AtomicInteger();
+        int answered = cacheWarmer.warm(List.of("first", "cached", "second"), prompt -> steps.incrementAndGet());
+
+        verify(mockLLM, never()).query("cached");
+        assertEquals(2, answered);
+        assertEquals(3, steps.get());
+        assertEquals("first answer", cache.get("first"));
+        assertEquals("second answer", cache.get("second"));
+        assertEquals(1, cacheWarmer.getSkipped());
+    }
+
+    @Test
+    public void testFailedPromptIsNotCached() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        Cache cache = new MapCache();
+        CacheWarmer cacheWarmer = new CacheWarmer(mockLLM, cache, 2);
+
+        when(mockLLM.query("first")).thenThrow(new LLMUnavailableException("unavailable"));
+        when(mockLLM.query("second")).thenReturn("second answer");
+
+        int answered = cacheWarmer.warm(List.of("first", "second"), prompt -> {});
+
+        assertEquals(1, answered);
+        assertEquals(1, cacheWarmer.getFailed());
+        assertEquals(false, cache.containsKey("first"));
+
+        // The next pass tries the failed prompt again.
+        reset(mockLLM);
+        when(mockLLM.query("first")).thenReturn("first answer");
+
+        assertEquals(1, cacheWarmer.warm(List.of("first", "second"), prompt -> {}));
+        verify(mockLLM, never()).query("second");
+        assertEquals("first answer", cache.get("first"));
+    }
+
+    @Test
+    public void testConcurrentPrompts() {
+        int workers = 4;
+        CountDownLatch allStarted = new CountDownLatch(workers);
+        LLM llm = prompt -> {
+            allStarted.countDown();
+            try {
+                // Every prompt waits until all workers run a prompt, which only happens if they run concurrently.
+                assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return prompt;
+        };
+        CacheWarmer cacheWarmer = new CacheWarmer(llm, new MapCache(), workers);
+
+        int answered = cacheWarmer.warm(List.of("1", "2", "3", "4"), prompt -> {});
+
+        assertEquals(workers, answered);
+        assertEquals(0, cacheWarmer.getFailed());
+    }
+
+    @Test
+    public void testIllegalWorkers() {
+        assertThrows(IllegalArgumentException.class, () -> new CacheWarmer(Mockito.mock(LLM.class), new MapCache(), 0));
+    }
+
+    private static class MapCache implements Cache {
+        private final Map<String, String> values = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean containsKey(String prompt) {
+            return values.containsKey(prompt);
+        }
+
+        @Override
+        public String get(String prompt) {
+            return values.get(prompt);
+        }
+
+        @Override
+        public void put(String prompt, String value) {
+            values.put(prompt, value);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyLimitedLLMTest {
+
+    @Test
+    public void testLimitsConcurrentRequests() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        LLM slowLLM = prompt -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            running.decrementAndGet();
+            return prompt;
+        };
+        LLM llm = new ConcurrencyLimitedLLM(slowLLM, 3);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            String prompt = "prompt" + i;
+            futures.add(executorService.submit(() -> llm.query(prompt)));
+        }
+        for (int i = 0; i < 32; i++) {
+            assertEquals("prompt" + i, futures.get(i).get());
+        }
+        executorService.shutdown();
+
+        assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    public void testPermitIsReleasedOnException() {
+        LLM failingLLM = prompt -> {
+            throw new LLMUnavailableException("Unavailable");
+        };
+        LLM llm = new ConcurrencyLimitedLLM(failingLLM, 1);
+
+        assertThrows(LLMUnavailableException.class, () -> llm.query("prompt"));
+        assertThrows(LLMUnavailableException.class, () -> llm.query("prompt"));
+    }
+
+    @Test
+    public void testIllegalLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimitedLLM(Mockito.mock(LLM.class), 0));
+    }
+
+    @Test
+    public void testEquals() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+
+        assertEquals(new ConcurrencyLimitedLLM(mockLLM, 4), new ConcurrencyLimitedLLM(mockLLM, 4));
+    }
+
+    @Test
+    public void testNotEquals() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+
+        assertNotEquals(new ConcurrencyLimitedLLM(mockLLM, 4), new ConcurrencyLimitedLLM(mockLLM, 2));
+    }
+}
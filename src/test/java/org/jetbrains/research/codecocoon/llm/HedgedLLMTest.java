@@ -0,0 +1,224 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class HedgedLLMTest {
+
+    @Test
+    public void testFastPrimaryIsNotHedged() {
+        AtomicInteger hedgeQueries = new AtomicInteger();
+        HedgedLLM llm = new HedgedLLM(prompt -> "primary", prompt -> {
+            hedgeQueries.incrementAndGet();
+            return "hedge";
+        }, 95, 1000);
+
+        assertEquals("primary", llm.query("prompt"));
+        assertEquals(0, hedgeQueries.get());
+        assertEquals(1, llm.getPrimaryWins());
+        assertEquals(0, llm.getHedgedRequests());
+    }
+
+    @Test
+    public void testSlowPrimaryIsHedgedAndCancelled() throws InterruptedException {
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+        LLM slowPrimary = prompt -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                primaryCancelled.countDown();
+            }
+            return "primary";
+        };
+        HedgedLLM llm = new HedgedLLM(slowPrimary, prompt -> "hedge", 95, 50);
+
+        assertEquals("hedge", llm.query("prompt"));
+        assertTrue(primaryCancelled.await(5, TimeUnit.SECONDS));
+        assertEquals(1, llm.getHedgedRequests());
+        assertEquals(1, llm.getHedgeWins());
+        assertEquals(0, llm.getPrimaryWins());
+    }
+
+    @Test
+    public void testPrimaryThatAnswersFirstAfterHedgeWins() {
+        LLM primary = prompt -> sleepAndAnswer(200, "primary");
+        LLM hedge = prompt -> sleepAndAnswer(10_000, "hedge");
+        HedgedLLM llm = new HedgedLLM(primary, hedge, 95, 10);
+
+        assertEquals("primary", llm.query("prompt"));
+        assertEquals(1, llm.getHedgedRequests());
+        assertEquals(1, llm.getPrimaryWins());
+    }
+
+    @Test
+    public void testFailedPrimaryIsHedgedImmediately() {
+        LLM failingPrimary = prompt -> {
+            throw new LLMUnavailableException("Primary is down");
+        };
+        HedgedLLM llm = new HedgedLLM(failingPrimary, prompt -> "hedge", 95, 60_000);
+
+        assertEquals("hedge", llm.query("prompt"));
+        assertEquals(1, llm.getHedgeWins());
+    }
+
+    @Test
+    public void testEmptyAnswerIsHedged() {
+        HedgedLLM llm = new HedgedLLM(prompt -> "", prompt -> "hedge", 95, 60_000);
+
+        assertEquals("hedge", llm.query("prompt"));
+    }
+
+    @Test
+    public void testBothFail() {
+        HedgedLLM llm = new HedgedLLM(prompt -> {
+            throw new LLMUnavailableException("Primary is down");
+        }, prompt -> {
+            throw new LLMUnavailableException("Hedge is down");
+        }, 95, 60_000);
+
+        // The hedge is only sent once the primary has failed, so the failure of the primary is always the first one.
+        LLMUnavailableException exception = assertThrows(LLMUnavailableException.class, () -> llm.query("prompt"));
+        assertEquals("Primary is down", exception.getMessage());
+    }
+
+    @Test
+    public void testEmptyAnswerIsKeptOverFailure() {
+        LLM failing = prompt -> {
+            throw new LLMUnavailableException("LLM is down");
+        };
+
+        assertEquals("", new HedgedLLM(prompt -> "", failing, 95, 0).query("prompt"));
+        assertEquals("", new HedgedLLM(failing, prompt -> "", 95, 0).query("prompt"));
+    }
+
+    @Test
+    public void testNoHedgeWithoutCapacity() {
+        AtomicInteger hedgeQueries = new AtomicInteger();
+        ConcurrencyLimit limit = new ConcurrencyLimit(1);
+        assertTrue(limit.tryAcquire("other prompt"));
+        HedgedLLM llm = new HedgedLLM(prompt -> sleepAndAnswer(200, "primary"), prompt -> {
+            hedgeQueries.incrementAndGet();
+            return "hedge";
+        }, List.of(limit), 95, 10);
+
+        assertEquals("primary", llm.query("prompt"));
+        assertEquals(0, hedgeQueries.get());
+        assertEquals(1, llm.getLimitedHedges());
+        assertEquals(0, llm.getHedgedRequests());
+    }
+
+    @Test
+    public void testHedgeGivesBackCapacity() throws InterruptedException {
+        ConcurrencyLimit limit = new ConcurrencyLimit(1);
+        CountDownLatch hedgeDone = new CountDownLatch(1);
+        HedgedLLM llm = new HedgedLLM(prompt -> sleepAndAnswer(10_000, "primary"), prompt -> {
+            hedgeDone.countDown();
+            return "hedge";
+        }, List.of(limit), 95, 10);
+
+        assertEquals("hedge", llm.query("prompt"));
+        assertTrue(hedgeDone.await(5, TimeUnit.SECONDS));
+        // The permit is given back once the hedge task has finished, which can be just after the answer was returned.
+        assertTrue(waitForPermit(limit));
+        assertEquals(1, llm.getHedgeWins());
+    }
+
+    @Test
+    public void testLosingPrimaryHoldsCapacity() throws InterruptedException {
+        ConcurrencyLimit limit = new ConcurrencyLimit(1);
+        CountDownLatch primaryAnswered = new CountDownLatch(1);
+        // Like a blocking HTTP call, the primary does not stop when it is interrupted.
+        LLM blockingPrimary = prompt -> {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    primaryAnswered.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return "primary";
+        };
+        try (HedgedLLM llm = new HedgedLLM(blockingPrimary, prompt -> "hedge", List.of(limit), 95, 10)) {
+            assertEquals("hedge", llm.query("prompt"));
+            Thread.sleep(100);
+            assertFalse(limit.tryAcquire("prompt"));
+
+            primaryAnswered.countDown();
+            assertTrue(waitForPermit(limit));
+        }
+    }
+
+    @Test
+    public void testHedgeCountsTowardsRateLimit() {
+        AtomicLong now = new AtomicLong();
+        RateLimit rateLimit = RateLimit.withBuckets(Optional.of(new TokenBucket(1, now::get)), Optional.empty(), 0);
+        HedgedLLM llm = new HedgedLLM(prompt -> sleepAndAnswer(200, "primary"), prompt -> "hedge", List.of(rateLimit), 95, 10);
+
+        assertEquals("hedge", llm.query("prompt"));
+        assertEquals("primary", llm.query("prompt"));
+        assertEquals(1, llm.getLimitedHedges());
+    }
+
+    @Test
+    public void testDelayFollowsPercentile() {
+        HedgedLLM llm = new HedgedLLM(prompt -> "primary", prompt -> "hedge", 95, 60_000);
+        assertEquals(TimeUnit.SECONDS.toNanos(60), llm.getHedgeDelayNanos());
+
+        for (int i = 0; i < 20; i++) llm.query("prompt");
+
+        assertTrue(llm.getHedgeDelayNanos() < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, llm.getHedgedRequests());
+    }
+
+    @Test
+    public void testLocalProviders() {
+        try (StubOpenAIServer slowServer = new StubOpenAIServer(prompt -> "slow", 5_000);
+             StubOpenAIServer fastServer = new StubOpenAIServer(prompt -> "fast", 10)) {
+            slowServer.start();
+            fastServer.start();
+            HedgedLLM llm = new HedgedLLM(new OpenAI("local-model", Optional.of(slowServer.getBaseUrl())),
+                    new OpenAI("local-model", Optional.of(fastServer.getBaseUrl())), 95, 100);
+
+            assertEquals("fast", llm.query("prompt"));
+            assertEquals(1, llm.getHedgeWins());
+        }
+    }
+
+    @Test
+    public void testIllegalPercentile() {
+        assertThrows(IllegalArgumentException.class, () -> new HedgedLLM(prompt -> "", prompt -> "", 0, 1000));
+    }
+
+    @Test
+    public void testIllegalInitialDelay() {
+        assertThrows(IllegalArgumentException.class, () -> new HedgedLLM(prompt -> "", prompt -> "", 95, -1));
+    }
+
+    private static boolean waitForPermit(ConcurrencyLimit limit) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            if (limit.tryAcquire("prompt")) return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private static String sleepAndAnswer(long millis, String answer) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return answer;
+    }
+}
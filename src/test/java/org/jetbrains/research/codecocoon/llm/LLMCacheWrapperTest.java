@@ -4,8 +4,13 @@ import org.jetbrains.research.codecocoon.io.cache.Cache;
 import org.junit.Test;
 import org.mockito.Mockito;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotEquals;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 public class LLMCacheWrapperTest {
@@ -49,6 +54,107 @@ public class LLMCacheWrapperTest {
         assertEquals(synonym, result);
     }
 
+    @Test
+    public void testConcurrentQueriesAreCoalesced() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        LLM slowLLM = prompt -> {
+            queries.incrementAndGet();
+            await(release);
+            return "result";
+        };
+        LLM llmCacheWrapper = new LLMCacheWrapper(slowLLM, new InMemoryCache());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executorService.submit(() -> llmCacheWrapper.query("prompt")));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> future : futures) {
+            assertEquals("result", future.get());
+        }
+        executorService.shutdown();
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    public void testDifferentPromptsAreNotCoalesced() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        LLM llm = prompt -> {
+            queries.incrementAndGet();
+            bothStarted.countDown();
+            await(bothStarted);
+            return prompt;
+        };
+        LLM llmCacheWrapper = new LLMCacheWrapper(llm, new InMemoryCache());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Future<String> first = executorService.submit(() -> llmCacheWrapper.query("prompt1"));
+        Future<String> second = executorService.submit(() -> llmCacheWrapper.query("prompt2"));
+
+        assertEquals("prompt1", first.get());
+        assertEquals("prompt2", second.get());
+        executorService.shutdown();
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void testFailureIsSharedAndNotCached() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        LLM failingLLM = prompt -> {
+            queries.incrementAndGet();
+            await(release);
+            throw new LLMUnavailableException("Unavailable");
+        };
+        Cache cache = new InMemoryCache();
+        LLM llmCacheWrapper = new LLMCacheWrapper(failingLLM, cache);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executorService.submit(() -> llmCacheWrapper.query("prompt")));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> future : futures) {
+            ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+            assertTrue(exception.getCause() instanceof LLMUnavailableException);
+        }
+        executorService.shutdown();
+        assertEquals(1, queries.get());
+        assertFalse(cache.containsKey("prompt"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class InMemoryCache implements Cache {
+        private final Map<String, String> responses = new ConcurrentHashMap<>();
+
+        public boolean containsKey(String prompt) {
+            return responses.containsKey(prompt);
+        }
+
+        public String get(String prompt) {
+            return responses.get(prompt);
+        }
+
+        public void put(String prompt, String value) {
+            responses.put(prompt, value);
+        }
+    }
+
     @Test
     public void testEquals() {
         LLM mockLLM = Mockito.mock(LLM.class);
@@ -0,0 +1,27 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PromptRecorderTest {
+
+    @Test
+    public void testRecordsDistinctPromptsInOrder() {
+        PromptRecorder recorder = new PromptRecorder();
+
+        recorder.query("Generate a synonym for the variable \"second\"");
+        recorder.query("Generate a synonym for the variable \"first\"");
+        recorder.query("Generate a synonym for the variable \"second\"");
+
+        assertEquals(List.of("Generate a synonym for the variable \"second\"", "Generate a synonym for the variable \"first\""),
+                recorder.getPrompts());
+    }
+
+    @Test
+    public void testKeepsOriginalName() {
+        assertEquals("value", new PromptRecorder().query("Generate a synonym for the variable \"value\""));
+    }
+}
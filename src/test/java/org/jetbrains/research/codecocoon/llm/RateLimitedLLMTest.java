@@ -0,0 +1,141 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RateLimitedLLMTest {
+
+    LLM mockLLM = Mockito.mock(LLM.class);
+    List<Long> sleeps = new ArrayList<>();
+
+    @Test
+    public void testRetriesUnavailable() {
+        LLM llm = new RateLimitedLLM(mockLLM, Optional.empty(), Optional.empty(), 0, 3, 100, sleeps::add);
+
+        when(mockLLM.query("prompt"))
+                .thenThrow(new LLMUnavailableException("Rate limited"))
+                .thenThrow(new LLMUnavailableException("Rate limited"))
+                .thenReturn("answer");
+
+        assertEquals("answer", llm.query("prompt"));
+        verify(mockLLM, times(3)).query("prompt");
+        assertTrue(sleeps.size() <= 2);
+        assertTrue(sleeps.stream().allMatch(sleep -> sleep <= TimeUnit.MILLISECONDS.toNanos(200)));
+    }
+
+    @Test(timeout = 10_000)
+    public void testConcurrencyPermitIsReleasedDuringBackoff() {
+        ConcurrencyLimitedLLM limitedLLM = new ConcurrencyLimitedLLM(mockLLM, 1);
+        List<String> answersDuringBackoff = new ArrayList<>();
+        // With the only permit held during the backoff, the query in the sleeper would never get one.
+        LLM llm = new RateLimitedLLM(limitedLLM, Optional.empty(), Optional.empty(), 0, 1, 100,
+                nanos -> answersDuringBackoff.add(limitedLLM.query("other prompt")));
+
+        when(mockLLM.query("prompt"))
+                .thenThrow(new LLMUnavailableException("Rate limited"))
+                .thenReturn("answer");
+        when(mockLLM.query("other prompt")).thenReturn("other answer");
+
+        assertEquals("answer", llm.query("prompt"));
+        assertTrue(answersDuringBackoff.stream().allMatch("other answer"::equals));
+    }
+
+    @Test
+    public void testGivesUpAfterMaxRetries() {
+        LLM llm = new RateLimitedLLM(mockLLM, Optional.empty(), Optional.empty(), 0, 2, 100, sleeps::add);
+
+        when(mockLLM.query("prompt")).thenThrow(new LLMUnavailableException("Rate limited"));
+
+        assertThrows(LLMUnavailableException.class, () -> llm.query("prompt"));
+        verify(mockLLM, times(3)).query("prompt");
+    }
+
+    @Test
+    public void testDoesNotRetryOtherExceptions() {
+        LLM llm = new RateLimitedLLM(mockLLM, Optional.empty(), Optional.empty(), 0, 2, 100, sleeps::add);
+
+        when(mockLLM.query("prompt")).thenThrow(new IllegalStateException());
+
+        assertThrows(IllegalStateException.class, () -> llm.query("prompt"));
+        verify(mockLLM, times(1)).query("prompt");
+    }
+
+    @Test
+    public void testWaitsForRequestBucket() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket requestBucket = new TokenBucket(2, now::get);
+        LLM llm = new RateLimitedLLM(mockLLM, Optional.of(requestBucket), Optional.empty(), 0, 0, 100, sleeps::add);
+
+        llm.query("prompt");
+        llm.query("prompt");
+        llm.query("prompt");
+
+        assertEquals(List.of(TimeUnit.SECONDS.toNanos(30)), sleeps);
+    }
+
+    @Test
+    public void testWaitsForTokenBucket() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket tokenBucket = new TokenBucket(60, now::get);
+        LLM llm = new RateLimitedLLM(mockLLM, Optional.empty(), Optional.of(tokenBucket), 0, 0, 100, sleeps::add);
+        String prompt = "a".repeat(236);
+
+        llm.query(prompt);
+        llm.query(prompt);
+
+        assertEquals(60, Tokens.estimate(prompt));
+        assertEquals(List.of(TimeUnit.SECONDS.toNanos(60)), sleeps);
+    }
+
+    @Test
+    public void testTokenBucketCountsCompletionTokens() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket tokenBucket = new TokenBucket(120, now::get);
+        LLM llm = new RateLimitedLLM(mockLLM, Optional.empty(), Optional.of(tokenBucket), 60, 0, 100, sleeps::add);
+        String prompt = "a".repeat(236);
+
+        llm.query(prompt);
+        llm.query(prompt);
+
+        // Every request reserves 60 prompt and 60 completion tokens, so the bucket only has room for one per minute.
+        assertEquals(List.of(TimeUnit.SECONDS.toNanos(60)), sleeps);
+    }
+
+    @Test
+    public void testBackoffIsBounded() {
+        RateLimitedLLM llm = new RateLimitedLLM(mockLLM, Optional.empty(), Optional.empty(), 0, 50, 100, sleeps::add);
+
+        for (int attempt = 0; attempt < 50; attempt++) {
+            long backoff = llm.backoffMillis(attempt);
+            assertTrue(backoff >= 0);
+            assertTrue(backoff <= Math.min(60_000, 100L << Math.min(attempt, 30)));
+        }
+    }
+
+    @Test
+    public void testEquals() {
+        LLM llm1 = new RateLimitedLLM(mockLLM, Optional.of(500L), Optional.empty(), 0, 3, 100);
+        LLM llm2 = new RateLimitedLLM(mockLLM, Optional.of(500L), Optional.empty(), 0, 3, 100);
+
+        assertEquals(llm1, llm2);
+    }
+
+    @Test
+    public void testNotEquals() {
+        LLM llm1 = new RateLimitedLLM(mockLLM, Optional.of(500L), Optional.empty(), 0, 3, 100);
+        LLM llm2 = new RateLimitedLLM(mockLLM, Optional.of(500L), Optional.of(10000L), 0, 3, 100);
+        LLM llm3 = new RateLimitedLLM(mockLLM, Optional.of(500L), Optional.of(10000L), 500, 3, 100);
+
+        assertNotEquals(llm1, llm2);
+        assertNotEquals(llm2, llm3);
+    }
+}
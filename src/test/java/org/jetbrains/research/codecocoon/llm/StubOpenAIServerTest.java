@@ -0,0 +1,121 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class StubOpenAIServerTest {
+
+    @Test
+    public void testOpenAIClient() {
+        try (StubOpenAIServer server = new StubOpenAIServer(prompt -> "answer to " + prompt, 0)) {
+            server.start();
+            LLM llm = new OpenAI("local-model", Optional.of(server.getBaseUrl()));
+
+            assertEquals("answer to question", llm.query("question"));
+            assertEquals(1, server.getRequests());
+        }
+    }
+
+    @Test
+    public void testUsage() {
+        try (StubOpenAIServer server = new StubOpenAIServer(prompt -> "answer", 0)) {
+            server.start();
+            UsageTracker usageTracker = new UsageTracker();
+            LLM llm = new OpenAI("local-model", Optional.of(server.getBaseUrl()), false, new TokenPrices(1, 2), usageTracker);
+
+            usageTracker.claim("a question of 32 characters long");
+            llm.query("a question of 32 characters long");
+
+            // The stub reports an estimate of one token per four characters.
+            Usage expected = new Usage(1, 9, 2, 9e-6 + 4e-6);
+            Usage actual = usageTracker.takeUsage("a question of 32 characters long");
+            assertEquals(expected.promptTokens(), actual.promptTokens());
+            assertEquals(expected.completionTokens(), actual.completionTokens());
+            assertEquals(expected.cost(), actual.cost(), 1e-12);
+            assertEquals(1, usageTracker.getTotal().requests());
+        }
+    }
+
+    @Test
+    public void testConcurrentRequests() throws InterruptedException {
+        try (StubOpenAIServer server = new StubOpenAIServer(prompt -> prompt, 10)) {
+            server.start();
+            LLM llm = new OpenAI("local-model", Optional.of(server.getBaseUrl()));
+
+            Thread[] threads = new Thread[8];
+            String[] answers = new String[threads.length];
+            for (int i = 0; i < threads.length; i++) {
+                int index = i;
+                threads[i] = new Thread(() -> answers[index] = llm.query("prompt " + index));
+                threads[i].start();
+            }
+            for (Thread thread : threads) thread.join();
+
+            for (int i = 0; i < threads.length; i++) {
+                assertEquals("prompt " + i, answers[i]);
+            }
+            assertEquals(threads.length, server.getRequests());
+        }
+    }
+
+    @Test
+    public void testKeepOriginalName() {
+        String prompt = "Generate a synonym for the variable \"value\" in the following code snippet: \n\nint value = \"text\";";
+
+        assertEquals("value", StubOpenAIServer.keepOriginalName(prompt));
+    }
+
+    @Test
+    public void testKeepOriginalNameBatch() {
+        String prompt = "Generate a synonym for each of the following identifiers in the code snippet below:\n- parameter \"value\"\n- variable \"total\"\n\nCode snippet: ";
+
+        assertEquals("[{\"type\":\"parameter\",\"name\":\"value\",\"synonym\":\"value\"},{\"type\":\"variable\",\"name\":\"total\",\"synonym\":\"total\"}]",
+                StubOpenAIServer.keepOriginalName(prompt));
+    }
+
+    @Test
+    public void testKeepOriginalNameStructured() {
+        String prompt = "Generate synonyms for the variable \"value\" in the following code snippet: \n\nint value = 1;\nAnswer with only a JSON object with the field \"synonyms\"";
+
+        assertEquals("{\"synonyms\":[\"value\"]}", StubOpenAIServer.keepOriginalName(prompt));
+    }
+
+    @Test
+    public void testKeepOriginalNameStructuredBatch() {
+        String prompt = "Generate synonyms for each of the following identifiers in the code snippet below:\n- parameter \"value\"\n\nCode snippet: \nAnswer with only a JSON object with the field \"identifiers\"";
+
+        assertEquals("{\"identifiers\":[{\"type\":\"parameter\",\"name\":\"value\",\"synonyms\":[\"value\"]}]}",
+                StubOpenAIServer.keepOriginalName(prompt));
+    }
+
+    @Test
+    public void testNotEqualsJsonResponses() {
+        assertNotEquals(new OpenAI("local-model", Optional.of("http://localhost:8000/v1")),
+                new OpenAI("local-model", Optional.of("http://localhost:8000/v1"), true));
+    }
+
+    @Test
+    public void testIllegalLatency() {
+        assertThrows(IllegalArgumentException.class, () -> new StubOpenAIServer(prompt -> prompt, -1));
+    }
+
+    @Test
+    public void testUnsupportedModelWithoutBaseUrl() {
+        assertThrows(LLMUnavailableException.class, () -> new OpenAI("local-model"));
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(new OpenAI("local-model", Optional.of("http://localhost:8000/v1")),
+                new OpenAI("local-model", Optional.of("http://localhost:8000/v1")));
+    }
+
+    @Test
+    public void testNotEquals() {
+        assertNotEquals(new OpenAI("local-model", Optional.of("http://localhost:8000/v1")),
+                new OpenAI("local-model", Optional.of("http://localhost:8001/v1")));
+    }
+}
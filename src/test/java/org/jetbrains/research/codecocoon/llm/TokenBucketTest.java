@@ -0,0 +1,69 @@
+package org.jetbrains.research.codecocoon.llm;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    AtomicLong now = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(60, now::get);
+
+    @Test
+    public void testWithinCapacity() {
+        assertEquals(0, bucket.reserve(30));
+        assertEquals(0, bucket.reserve(30));
+    }
+
+    @Test
+    public void testWaitsWhenEmpty() {
+        bucket.reserve(60);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve(1));
+        assertEquals(TimeUnit.SECONDS.toNanos(3), bucket.reserve(2));
+    }
+
+    @Test
+    public void testRefills() {
+        bucket.reserve(60);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertEquals(0, bucket.reserve(10));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve(1));
+    }
+
+    @Test
+    public void testRefillsUpToCapacity() {
+        now.addAndGet(TimeUnit.MINUTES.toNanos(5));
+
+        assertEquals(0, bucket.reserve(60));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve(1));
+    }
+
+    @Test
+    public void testMoreThanCapacity() {
+        assertEquals(0, bucket.reserve(1000));
+        assertEquals(TimeUnit.SECONDS.toNanos(60), bucket.reserve(60));
+    }
+
+    @Test
+    public void testIllegalCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0));
+    }
+
+    @Test
+    public void testTryReserve() {
+        assertTrue(bucket.tryReserve(50));
+        assertFalse(bucket.tryReserve(20));
+        bucket.refund(10);
+
+        assertTrue(bucket.tryReserve(20));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve(1));
+    }
+}
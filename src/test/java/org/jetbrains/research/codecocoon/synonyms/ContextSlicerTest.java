@@ -0,0 +1,77 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+
+public class ContextSlicerTest {
+
+    String code = """
+            public int test(int value) {
+              int total = 0;
+              for (int i = 0; i < value; i++) {
+                total += i;
+              }
+              int unused = 1;
+              return total;
+            }""";
+
+    @Test
+    public void testKeepsSignatureAndUsages() {
+        String expected = """
+                public int test(int value) {
+                  int total = 0;
+                  // ...
+                    total += i;
+                  // ...
+                  return total;
+                }""";
+
+        assertEquals(expected, new ContextSlicer(100).slice(code, "total", "variable"));
+    }
+
+    @Test
+    public void testWholeWordsOnly() {
+        String expected = """
+                public int test(int value) {
+                  // ...
+                  for (int i = 0; i < value; i++) {
+                    // ...
+                }""";
+
+        assertEquals(expected, new ContextSlicer(100).slice(code, "value", "parameter"));
+    }
+
+    @Test
+    public void testFunctionKeepsBody() {
+        assertEquals(code, new ContextSlicer(1000).slice(code, "test", "function"));
+    }
+
+    @Test
+    public void testTokenBudget() {
+        String expected = """
+                public int test(int value) {
+                  int total = 0;
+                  // ...
+                }""";
+
+        assertEquals(expected, new ContextSlicer(16).slice(code, "total", "variable"));
+    }
+
+    @Test
+    public void testIllegalTokenBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new ContextSlicer(0));
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(new ContextSlicer(100), new ContextSlicer(100));
+    }
+
+    @Test
+    public void testNotEquals() {
+        assertNotEquals(new ContextSlicer(100), new ContextSlicer(200));
+    }
+}
@@ -1,11 +1,22 @@
 package org.jetbrains.research.codecocoon.synonyms;
 
+import org.jetbrains.research.codecocoon.llm.BudgetExceededException;
 import org.jetbrains.research.codecocoon.llm.LLM;
+import org.jetbrains.research.codecocoon.llm.LLMUnavailableException;
+import org.jetbrains.research.codecocoon.llm.Usage;
+import org.jetbrains.research.codecocoon.llm.UsageTracker;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 public class LLMSynonymGeneratorTest {
@@ -66,6 +77,294 @@ public class LLMSynonymGeneratorTest {
         assertEquals(variable, result);
     }
 
+    @Test
+    public void testBatch() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        SynonymGenerator generator = new LLMSynonymGenerator(mockLLM);
+
+        String snippet = "public int test(int value) {\n  int total = value;\n  return total;\n}";
+        Identifier parameter = new Identifier("value", "parameter");
+        Identifier variable = new Identifier("total", "variable");
+
+        String prompt = "Generate a synonym for each of the following identifiers in the code snippet below:\n- parameter \"value\"\n- variable \"total\"\n\nCode snippet: \n\npublic int test(int value) {\n  int total = value;\n  return total;\n}\nIf no good alternative is possible for an identifier, use the original name.\nAnswer with only a JSON array that contains an object with the fields \"type\", \"name\" and \"synonym\" for every identifier.";
+        String answer = "```json\n[{\"type\": \"parameter\", \"name\": \"value\", \"synonym\": \"amount\"}, {\"type\": \"variable\", \"name\": \"total\", \"synonym\": \"sum\"}]\n```";
+
+        when(mockLLM.query(prompt)).thenReturn(answer);
+
+        Map<Identifier, String> result = generator.generateSynonymsFor(List.of(parameter, variable), snippet);
+
+        verify(mockLLM, times(1)).query(anyString());
+        assertEquals(Map.of(parameter, "amount", variable, "sum"), result);
+    }
+
+    @Test
+    public void testBatchMissingIdentifier() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        SynonymGenerator generator = new LLMSynonymGenerator(mockLLM);
+
+        String snippet = "public int test(int value) {\n  int total = value;\n  return total;\n}";
+        Identifier parameter = new Identifier("value", "parameter");
+        Identifier variable = new Identifier("total", "variable");
+
+        String singlePrompt = "Generate a synonym for the variable \"total\" in the following code snippet: \n\npublic int test(int value) {\n  int total = value;\n  return total;\n}\nIf no good alternative is possible, return the original name.\nAnswer with only the new variable name.";
+
+        when(mockLLM.query(anyString())).thenReturn("[{\"type\": \"parameter\", \"name\": \"value\", \"synonym\": \"amount\"}, {\"name\": \"total\"}]");
+        when(mockLLM.query(singlePrompt)).thenReturn("sum");
+
+        Map<Identifier, String> result = generator.generateSynonymsFor(List.of(parameter, variable), snippet);
+
+        verify(mockLLM, times(2)).query(anyString());
+        assertEquals(Map.of(parameter, "amount", variable, "sum"), result);
+    }
+
+    @Test
+    public void testBatchUnparseable() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        SynonymGenerator generator = new LLMSynonymGenerator(mockLLM);
+
+        Identifier parameter = new Identifier("value", "parameter");
+        Identifier variable = new Identifier("total", "variable");
+
+        when(mockLLM.query(anyString())).thenReturn("amount");
+
+        Map<Identifier, String> result = generator.generateSynonymsFor(List.of(parameter, variable), "");
+
+        verify(mockLLM, times(3)).query(anyString());
+        assertEquals(Map.of(parameter, "amount", variable, "amount"), result);
+    }
+
+    @Test
+    public void testSlicedContext() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.of(new ContextSlicer(100)));
+
+        String snippet = "public int test() {\n  int value = 1;\n  int other = 2;\n  return value;\n}";
+
+        String prompt = "Generate a synonym for the variable \"value\" in the following code snippet: \n\npublic int test() {\n  int value = 1;\n  // ...\n  return value;\n}\nIf no good alternative is possible, return the original name.\nAnswer with only the new variable name.";
+
+        when(mockLLM.query(prompt)).thenReturn("result");
+
+        String result = generator.generateSynonymFor("value", snippet, "variable");
+
+        verify(mockLLM).query(prompt);
+        assertEquals("result", result);
+        assertEquals(1, generator.getPromptStatistics().getPrompts());
+        assertTrue(generator.getPromptStatistics().getAverageSentTokens() < generator.getPromptStatistics().getAverageFullTokens());
+    }
+
+    @Test
+    public void testPromptStatisticsWithoutSlicing() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM);
+
+        when(mockLLM.query(anyString())).thenReturn("result");
+
+        generator.generateSynonymFor("value", "int value = 1;", "variable");
+        generator.generateSynonymFor("other", "int other = 2;", "variable");
+
+        assertEquals(2, generator.getPromptStatistics().getPrompts());
+        assertEquals(generator.getPromptStatistics().getAverageFullTokens(), generator.getPromptStatistics().getAverageSentTokens(), 0);
+    }
+
+    @Test
+    public void testCandidates() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        SynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 3);
+
+        String snippet = "public int test() {\n  int value = 1;\n  return value;\n}";
+
+        String prompt = "Generate 3 different synonyms for the variable \"value\" in the following code snippet: \n\npublic int test() {\n  int value = 1;\n  return value;\n}\nIf no good alternative is possible, return the original name.\nAnswer with only the new variable names, one per line, the best one first.";
+
+        when(mockLLM.query(prompt)).thenReturn("1. `result`\n2. outcome\n\n- result\n3. amount\n4. total");
+
+        List<String> result = generator.generateSynonymCandidatesFor("value", snippet, "variable");
+
+        verify(mockLLM).query(prompt);
+        assertEquals(List.of("result", "outcome", "amount"), result);
+    }
+
+    @Test
+    public void testBatchCandidates() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        SynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 2);
+
+        Identifier parameter = new Identifier("value", "parameter");
+        Identifier variable = new Identifier("total", "variable");
+
+        when(mockLLM.query(anyString())).thenReturn("[{\"type\": \"parameter\", \"name\": \"value\", \"synonyms\": [\"amount\", \"input\", \"number\"]}, {\"type\": \"variable\", \"name\": \"total\", \"synonym\": \"sum\"}]");
+
+        Map<Identifier, List<String>> result = generator.generateSynonymCandidatesFor(List.of(parameter, variable), "");
+
+        verify(mockLLM, times(1)).query(anyString());
+        assertEquals(Map.of(parameter, List.of("amount", "input"), variable, List.of("sum")), result);
+    }
+
+    @Test
+    public void testIllegalCandidates() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+
+        assertThrows(IllegalArgumentException.class, () -> new LLMSynonymGenerator(mockLLM, Optional.empty(), 0));
+    }
+
+    @Test
+    public void testStructured() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 2, true, 1);
+
+        String snippet = "public int test() {\n  int value = 1;\n  return value;\n}";
+
+        String prompt = "Generate synonyms for the variable \"value\" in the following code snippet: \n\npublic int test() {\n  int value = 1;\n  return value;\n}\nIf no good alternative is possible, return the original name.\nAnswer with only a JSON object with the field \"synonyms\": an array of at most 2 new variable names, the best one first.";
+
+        when(mockLLM.query(prompt)).thenReturn("```json\n{\"synonyms\": [\" `result` \", \"class\", \"total amount\", \"'outcome'\", \"amount\"]}\n```");
+
+        List<String> result = generator.generateSynonymCandidatesFor("value", snippet, "variable");
+
+        verify(mockLLM).query(prompt);
+        assertEquals(List.of("result", "outcome"), result);
+        assertEquals(1, generator.getAnswerStatistics().getUsable());
+    }
+
+    @Test
+    public void testStructuredRepair() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, true, 1);
+
+        when(mockLLM.query(anyString())).thenReturn("result");
+        when(mockLLM.query(contains("Your previous answer was:\nresult\n"))).thenReturn("{\"synonyms\": [\"result\"]}");
+
+        String result = generator.generateSynonymFor("value", "", "variable");
+
+        verify(mockLLM, times(2)).query(anyString());
+        assertEquals("result", result);
+        assertEquals(1, generator.getAnswerStatistics().getRepaired());
+        assertEquals(2, generator.getPromptStatistics().getPrompts());
+    }
+
+    @Test
+    public void testStructuredRepairExhausted() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, true, 2);
+
+        when(mockLLM.query(anyString())).thenReturn("{\"synonyms\": [\"total amount\"]}");
+
+        String result = generator.generateSynonymFor("value", "", "variable");
+
+        verify(mockLLM, times(3)).query(anyString());
+        assertEquals("value", result);
+        assertEquals(1, generator.getAnswerStatistics().getUnusable());
+        assertEquals(0, generator.getAnswerStatistics().getUsableRate(), 0);
+    }
+
+    @Test
+    public void testStructuredBatch() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, true, 0);
+
+        Identifier parameter = new Identifier("value", "parameter");
+        Identifier variable = new Identifier("total", "variable");
+
+        when(mockLLM.query(anyString())).thenReturn("{\"identifiers\": [{\"type\": \"parameter\", \"name\": \"value\", \"synonyms\": [\"amount\"]}, {\"type\": \"variable\", \"name\": \"total\", \"synonyms\": [\"the sum\"]}]}");
+        when(mockLLM.query(contains("the variable \"total\""))).thenReturn("{\"synonyms\": [\"sum\"]}");
+
+        Map<Identifier, String> result = generator.generateSynonymsFor(List.of(parameter, variable), "");
+
+        verify(mockLLM, times(2)).query(anyString());
+        assertEquals(Map.of(parameter, "amount", variable, "sum"), result);
+        assertEquals(2, generator.getAnswerStatistics().getUsable());
+    }
+
+    @Test
+    public void testPlainAnswerStatistics() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM);
+
+        when(mockLLM.query(anyString())).thenReturn("result", "The new name is result.");
+
+        generator.generateSynonymFor("value", "", "variable");
+        generator.generateSynonymFor("total", "", "variable");
+
+        verify(mockLLM, times(2)).query(anyString());
+        assertEquals(1, generator.getAnswerStatistics().getUsable());
+        assertEquals(1, generator.getAnswerStatistics().getUnusable());
+        assertEquals(0.5, generator.getAnswerStatistics().getUsableRate(), 0);
+    }
+
+    @Test
+    public void testIllegalRepairAttempts() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+
+        assertThrows(IllegalArgumentException.class, () -> new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, true, -1));
+    }
+
+    @Test
+    public void testUsageByKind() {
+        UsageTracker usageTracker = new UsageTracker();
+        LLM llm = prompt -> {
+            usageTracker.record(prompt, new Usage(1, 100, 2, 0.1));
+            return prompt.contains("JSON array") ? "[]" : "result";
+        };
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(llm, Optional.empty(), 1, false, 0, usageTracker, Optional.empty());
+
+        generator.generateSynonymFor("value", "", "variable");
+        generator.generateSynonymFor("total", "", "variable");
+        generator.generateSynonymsFor(List.of(new Identifier("input", "parameter"), new Identifier("test", "function")), "");
+
+        Map<String, Usage> usageByKind = generator.getUsageByKind();
+        assertEquals(new Usage(2, 200, 4, 0.2), usageByKind.get("variable"));
+        assertEquals(new Usage(1, 100, 2, 0.1), usageByKind.get("batch"));
+        assertEquals(new Usage(1, 100, 2, 0.1), usageByKind.get("parameter"));
+        assertEquals(new Usage(1, 100, 2, 0.1), usageByKind.get("function"));
+    }
+
+    @Test
+    public void testBudgetExceededKeepsName() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, false, 0, new UsageTracker(), Optional.empty());
+
+        when(mockLLM.query(anyString())).thenThrow(new BudgetExceededException("spent"));
+
+        assertEquals("value", generator.generateSynonymFor("value", "", "variable"));
+        assertEquals(1, generator.getBudgetFallbacks());
+    }
+
+    @Test
+    public void testBudgetExceededFallback() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        SynonymGenerator fallback = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, false, 0, new UsageTracker(), Optional.of(fallback));
+
+        when(mockLLM.query(anyString())).thenThrow(new BudgetExceededException("spent"));
+        doReturn("amount").when(fallback).generateSynonymFor("value", "context", "variable");
+
+        assertEquals("amount", generator.generateSynonymFor("value", "context", "variable"));
+        assertEquals(1, generator.getBudgetFallbacks());
+    }
+
+    @Test
+    public void testOnlyFailuresAreFallbacks() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        LLMSynonymGenerator generator = new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, true, 0);
+
+        when(mockLLM.query(anyString())).thenThrow(new LLMUnavailableException("down")).thenReturn("not JSON");
+
+        List<String> failed = generator.generateSynonymCandidatesFor("value", "", "variable");
+        List<String> unusable = generator.generateSynonymCandidatesFor("value", "", "variable");
+
+        assertEquals(List.of("value"), failed);
+        assertTrue(generator.isFallback(failed));
+        assertEquals(List.of("value"), unusable);
+        assertFalse(generator.isFallback(unusable));
+    }
+
+    @Test
+    public void testNotEqualsStructured() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        SynonymGenerator generator1 = new LLMSynonymGenerator(mockLLM, Optional.empty(), 1);
+        SynonymGenerator generator2 = new LLMSynonymGenerator(mockLLM, Optional.empty(), 1, true, 1);
+
+        assertNotEquals(generator1, generator2);
+    }
+
     @Test
     public void testEquals() {
         LLM mockLLM = Mockito.mock(LLM.class);
@@ -75,6 +374,15 @@ public class LLMSynonymGeneratorTest {
         assertEquals(generator1, generator2);
     }
 
+    @Test
+    public void testNotEqualsContextSlicer() {
+        LLM mockLLM = Mockito.mock(LLM.class);
+        SynonymGenerator generator1 = new LLMSynonymGenerator(mockLLM, Optional.of(new ContextSlicer(100)));
+        SynonymGenerator generator2 = new LLMSynonymGenerator(mockLLM, Optional.of(new ContextSlicer(200)));
+
+        assertNotEquals(generator1, generator2);
+    }
+
     @Test
     public void testNotEquals() {
         LLM mockLLM1 = Mockito.mock(LLM.class);
@@ -0,0 +1,133 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LexicalSynonymGeneratorTest {
+
+    @Test
+    public void testCandidatesStartWithSynonym() {
+        SynonymGenerator generator = new LexicalSynonymGenerator();
+
+        List<String> candidates = generator.generateSynonymCandidatesFor("value", "", "variable");
+
+        assertTrue(candidates.size() > 1);
+        assertEquals(generator.generateSynonymFor("value", "", "variable"), candidates.get(0));
+        assertFalse(candidates.contains("value"));
+        assertEquals(candidates.size(), candidates.stream().distinct().count());
+    }
+
+    @Test
+    public void testNoSynonyms() {
+        SynonymGenerator generator = new LexicalSynonymGenerator();
+
+        assertEquals(List.of("x"), generator.generateSynonymCandidatesFor("x", "", "variable"));
+        assertEquals(List.of("qwzxv"), generator.generateSynonymCandidatesFor("qwzxv", "", "variable"));
+    }
+
+    @Test
+    public void testSplitCamelCase() {
+        SynonymGenerator generator = new LexicalSynonymGenerator(true, 100);
+
+        List<String> candidates = generator.generateSynonymCandidatesFor("seriesCount", "", "variable");
+
+        assertEquals("serialCounting", candidates.get(0));
+        assertTrue(candidates.stream().allMatch(candidate -> candidate.matches("[a-z]+[A-Z][a-z]+")));
+        assertEquals(candidates.size(), candidates.stream().distinct().count());
+    }
+
+    @Test
+    public void testSplitKeepsStyle() {
+        SynonymGenerator generator = new LexicalSynonymGenerator(true, 100);
+
+        assertEquals("fable_point", generator.generateSynonymFor("legend_item", "", "variable"));
+        assertEquals("FablePoint2", generator.generateSynonymFor("LegendItem2", "", "variable"));
+        assertTrue(generator.generateSynonymFor("MAX_VALUE", "", "variable").matches("[A-Z]+_[A-Z]+"));
+    }
+
+    @Test
+    public void testSplitUsesWholeIdentifierFirst() {
+        SynonymGenerator generator = new LexicalSynonymGenerator();
+        SynonymGenerator splittingGenerator = new LexicalSynonymGenerator(true, 100);
+
+        assertEquals(generator.generateSynonymCandidatesFor("value", "", "variable"),
+                splittingGenerator.generateSynonymCandidatesFor("value", "", "variable"));
+        assertEquals(List.of("seriesCount"), generator.generateSynonymCandidatesFor("seriesCount", "", "variable"));
+        assertEquals(List.of("qwzxvFoo"), splittingGenerator.generateSynonymCandidatesFor("qwzxvFoo", "", "variable"));
+    }
+
+    @Test
+    public void testTokenMemoIsBounded() {
+        LexicalSynonymGenerator generator = new LexicalSynonymGenerator(true, 2);
+
+        generator.generateSynonymCandidatesFor("indexCount", "", "variable");
+        generator.generateSynonymCandidatesFor("resultIndex", "", "variable");
+        generator.generateSynonymCandidatesFor("countResult", "", "variable");
+
+        assertEquals(2, generator.getMemoizedTokens());
+        assertEquals(new LexicalSynonymGenerator(true, 0).generateSynonymCandidatesFor("countResult", "", "variable"),
+                generator.generateSynonymCandidatesFor("countResult", "", "variable"));
+    }
+
+    @Test
+    public void testConcurrentLookupsGiveSameOutput() throws Exception {
+        List<String> words = List.of("value", "result", "index", "count", "series", "legend", "item", "data", "plot",
+                "area", "number", "string", "list", "key", "label", "axis", "range", "point", "line", "width");
+        List<String> identifiers = new ArrayList<>();
+        for (String first : words) {
+            identifiers.add(first);
+            for (String second : words) {
+                identifiers.add(first + Character.toUpperCase(second.charAt(0)) + second.substring(1));
+                identifiers.add(first + "_" + second);
+            }
+        }
+
+        SynonymGenerator sequentialGenerator = new LexicalSynonymGenerator(true, 100);
+        Map<String, List<String>> expected = new HashMap<>();
+        for (String identifier : identifiers) {
+            expected.put(identifier, sequentialGenerator.generateSynonymCandidatesFor(identifier, "", "variable"));
+        }
+
+        // All threads start on a cold generator at the same time, and visit the identifiers in a different order.
+        SynonymGenerator sharedGenerator = new LexicalSynonymGenerator(true, 100);
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        try {
+            List<Future<Map<String, List<String>>>> results = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                List<String> order = new ArrayList<>(identifiers);
+                Collections.shuffle(order, new Random(thread));
+                results.add(executor.submit(() -> {
+                    start.await();
+                    Map<String, List<String>> actual = new HashMap<>();
+                    for (int round = 0; round < 5; round++) {
+                        for (String identifier : order) {
+                            actual.put(identifier, sharedGenerator.generateSynonymCandidatesFor(identifier, "", "variable"));
+                        }
+                    }
+                    return actual;
+                }));
+            }
+            for (Future<Map<String, List<String>>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
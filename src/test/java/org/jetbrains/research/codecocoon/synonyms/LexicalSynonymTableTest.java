@@ -0,0 +1,99 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import net.sf.extjwnl.JWNLException;
+import net.sf.extjwnl.data.IndexWord;
+import net.sf.extjwnl.data.POS;
+import net.sf.extjwnl.data.Synset;
+import net.sf.extjwnl.data.Word;
+import net.sf.extjwnl.dictionary.Dictionary;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class LexicalSynonymTableTest {
+    private static Dictionary dictionary;
+    private static LexicalSynonymTable table;
+
+    @BeforeClass
+    public static void setUp() throws JWNLException, IOException {
+        dictionary = Dictionary.getDefaultResourceInstance();
+        table = LexicalSynonymTable.load();
+    }
+
+    @Test
+    public void testSameSynonymsAsDictionary() throws JWNLException {
+        for (String identifier : List.of("value", "Value", " VALUE ", "result", "index", "count", "first_name", "hot dog", "idx", "maxValue", "")) {
+            assertEquals(identifier, synonymsFromDictionary(identifier), table.getSynonyms(identifier));
+        }
+    }
+
+    @Test
+    public void testSameSynonymsAsDictionaryForEveryNoun() throws JWNLException {
+        Iterator<IndexWord> indexWords = dictionary.getIndexWordIterator(POS.NOUN);
+        int nouns = 0;
+        while (indexWords.hasNext()) {
+            String lemma = indexWords.next().getLemma();
+            assertEquals(lemma, synonymsFromDictionary(lemma), table.getSynonyms(lemma));
+            nouns++;
+        }
+        assertTrue(nouns > 100_000);
+    }
+
+    @Test
+    public void testBuiltTableEqualsLoadedTable() throws JWNLException {
+        LexicalSynonymTable builtTable = new LexicalSynonymTable(LexicalSynonymTable.build(dictionary));
+
+        for (String identifier : List.of("value", "result", "number", "string", "list")) {
+            assertEquals(table.getSynonyms(identifier), builtTable.getSynonyms(identifier));
+        }
+    }
+
+    @Test
+    public void testMapFile() throws JWNLException, IOException {
+        ByteBuffer builtTable = LexicalSynonymTable.build(dictionary);
+        byte[] bytes = new byte[builtTable.remaining()];
+        builtTable.get(bytes);
+        Path path = Files.createTempFile("lexical-synonyms", ".bin");
+        try {
+            Files.write(path, bytes);
+
+            assertEquals(table.getSynonyms("value"), LexicalSynonymTable.map(path).getSynonyms("value"));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testInvalidTable() {
+        assertThrows(IllegalArgumentException.class, () -> new LexicalSynonymTable(ByteBuffer.allocate(16)));
+    }
+
+    /**
+     * How the synonyms were found in the WordNet dictionary before there was a table.
+     */
+    private List<String> synonymsFromDictionary(String identifierName) throws JWNLException {
+        IndexWord indexWord = dictionary.getIndexWord(POS.NOUN, identifierName);
+        if (indexWord == null) return List.of();
+
+        Set<String> synonyms = new LinkedHashSet<>();
+        for (Synset synset : indexWord.getSenses()) {
+            for (Word synWord : synset.getWords()) {
+                String synonym = synWord.getLemma().split(" ")[0];
+                if (!synonym.equals(identifierName)) synonyms.add(synonym);
+            }
+        }
+        return List.copyOf(synonyms);
+    }
+}
@@ -0,0 +1,172 @@
+package org.jetbrains.research.codecocoon.synonyms;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MemoizingSynonymGeneratorTest {
+
+    @Test
+    public void testRepeatedIdentifier() {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        MemoizingSynonymGenerator generator = new MemoizingSynonymGenerator(mockGenerator, 10);
+
+        doReturn(List.of("result", "outcome")).when(mockGenerator).generateSynonymCandidatesFor("value", "context", "variable");
+
+        assertEquals("result", generator.generateSynonymFor("value", "context", "variable"));
+        assertEquals(List.of("result", "outcome"), generator.generateSynonymCandidatesFor("value", "context", "variable"));
+
+        verify(mockGenerator, times(1)).generateSynonymCandidatesFor("value", "context", "variable");
+        assertEquals(1, generator.getHits());
+        assertEquals(1, generator.getMisses());
+        assertEquals(0.5, generator.getHitRate(), 0);
+    }
+
+    @Test
+    public void testContextIsPartOfKey() {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        MemoizingSynonymGenerator generator = new MemoizingSynonymGenerator(mockGenerator, 10);
+
+        doReturn(List.of("result")).when(mockGenerator).generateSynonymCandidatesFor(anyString(), anyString(), anyString());
+
+        generator.generateSynonymCandidatesFor("value", "first context", "variable");
+        generator.generateSynonymCandidatesFor("value", "second context", "variable");
+        generator.generateSynonymCandidatesFor("value", "second context", "parameter");
+
+        verify(mockGenerator, times(3)).generateSynonymCandidatesFor(anyString(), anyString(), anyString());
+        assertEquals(0, generator.getHits());
+    }
+
+    @Test
+    public void testContextIsIgnoredIfUnused() {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        MemoizingSynonymGenerator generator = new MemoizingSynonymGenerator(mockGenerator, 10);
+
+        doReturn(false).when(mockGenerator).usesContext();
+        doReturn(List.of("result")).when(mockGenerator).generateSynonymCandidatesFor(anyString(), anyString(), anyString());
+
+        generator.generateSynonymCandidatesFor("value", "first context", "variable");
+        generator.generateSynonymCandidatesFor("value", "second context", "variable");
+
+        verify(mockGenerator, times(1)).generateSynonymCandidatesFor(anyString(), anyString(), anyString());
+        assertEquals(1, generator.getHits());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        MemoizingSynonymGenerator generator = new MemoizingSynonymGenerator(mockGenerator, 2);
+
+        doReturn(List.of("result")).when(mockGenerator).generateSynonymCandidatesFor(anyString(), anyString(), anyString());
+
+        generator.generateSynonymCandidatesFor("first", "", "variable");
+        generator.generateSynonymCandidatesFor("second", "", "variable");
+        generator.generateSynonymCandidatesFor("first", "", "variable");
+        generator.generateSynonymCandidatesFor("third", "", "variable");
+        generator.generateSynonymCandidatesFor("first", "", "variable");
+        generator.generateSynonymCandidatesFor("second", "", "variable");
+
+        verify(mockGenerator, times(2)).generateSynonymCandidatesFor("second", "", "variable");
+        verify(mockGenerator, times(1)).generateSynonymCandidatesFor("first", "", "variable");
+        assertEquals(2, generator.getEvictions());
+    }
+
+    @Test
+    public void testBatchOnlyPassesOnMissingIdentifiers() {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        MemoizingSynonymGenerator generator = new MemoizingSynonymGenerator(mockGenerator, 10);
+
+        Identifier parameter = new Identifier("value", "parameter");
+        Identifier variable = new Identifier("total", "variable");
+
+        doReturn(List.of("amount")).when(mockGenerator).generateSynonymCandidatesFor("value", "context", "parameter");
+        doReturn(Map.of(variable, List.of("sum"))).when(mockGenerator).generateSynonymCandidatesFor(List.of(variable), "context");
+
+        generator.generateSynonymCandidatesFor("value", "context", "parameter");
+        Map<Identifier, String> result = generator.generateSynonymsFor(List.of(parameter, variable), "context");
+
+        assertEquals(Map.of(parameter, "amount", variable, "sum"), result);
+        verify(mockGenerator).generateSynonymCandidatesFor(List.of(variable), "context");
+        assertEquals("sum", generator.generateSynonymFor("total", "context", "variable"));
+    }
+
+    @Test
+    public void testFallbackIsNotMemoized() {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        MemoizingSynonymGenerator generator = new MemoizingSynonymGenerator(mockGenerator, 10);
+        List<String> fallback = List.of("value");
+
+        doReturn(fallback, List.of("result")).when(mockGenerator).generateSynonymCandidatesFor("value", "context", "variable");
+        doReturn(true).when(mockGenerator).isFallback(same(fallback));
+
+        assertEquals("value", generator.generateSynonymFor("value", "context", "variable"));
+        assertEquals("result", generator.generateSynonymFor("value", "context", "variable"));
+        assertEquals("result", generator.generateSynonymFor("value", "context", "variable"));
+
+        verify(mockGenerator, times(2)).generateSynonymCandidatesFor("value", "context", "variable");
+    }
+
+    @Test
+    public void testSegmentedMemoKeepsSize() {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        MemoizingSynonymGenerator generator = new MemoizingSynonymGenerator(mockGenerator, 4096);
+
+        doReturn(false).when(mockGenerator).usesContext();
+        doReturn(List.of("result")).when(mockGenerator).generateSynonymCandidatesFor(anyString(), anyString(), anyString());
+
+        for (int i = 0; i < 2 * 4096; i++) generator.generateSynonymCandidatesFor("name" + i, "", "variable");
+        generator.generateSynonymCandidatesFor("name" + (2 * 4096 - 1), "", "variable");
+
+        // Every segment evicts on its own, so at least the entries beyond the maximum size have been evicted.
+        assertTrue(generator.getEvictions() >= 4096);
+        assertEquals(1, generator.getHits());
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        MemoizingSynonymGenerator generator = new MemoizingSynonymGenerator(mockGenerator, 1024);
+
+        doReturn(false).when(mockGenerator).usesContext();
+        doAnswer(invocation -> List.of(invocation.getArgument(0) + "Synonym"))
+                .when(mockGenerator).generateSynonymCandidatesFor(anyString(), anyString(), anyString());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    String name = "name" + (i % 2000);
+                    if (!generator.generateSynonymFor(name, "", "variable").equals(name + "Synonym")) return false;
+                }
+                return true;
+            }));
+        }
+        for (Future<Boolean> future : futures) assertTrue(future.get());
+        executorService.shutdown();
+
+        assertEquals(80_000, generator.getHits() + generator.getMisses());
+    }
+
+    @Test
+    public void testIllegalSize() {
+        assertThrows(IllegalArgumentException.class, () -> new MemoizingSynonymGenerator(Mockito.mock(SynonymGenerator.class), 0));
+    }
+
+    @Test
+    public void testEquals() {
+        SynonymGenerator mockGenerator = Mockito.mock(SynonymGenerator.class);
+
+        assertEquals(new MemoizingSynonymGenerator(mockGenerator, 10), new MemoizingSynonymGenerator(mockGenerator, 10));
+        assertNotEquals(new MemoizingSynonymGenerator(mockGenerator, 10), new MemoizingSynonymGenerator(mockGenerator, 20));
+    }
+}
@@ -1,17 +1,31 @@
 package org.jetbrains.research.codecocoon.transformer;
 
 import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.io.SnippetIO;
+import org.jetbrains.research.codecocoon.synonyms.Identifier;
 import org.jetbrains.research.codecocoon.synonyms.SynonymGenerator;
 import org.jetbrains.research.codecocoon.transformer.fortowhile.ForToWhileTransformer;
+import org.jetbrains.research.codecocoon.transformer.identifiers.FunctionNameTransformer;
+import org.jetbrains.research.codecocoon.transformer.identifiers.ParameterNameTransformer;
+import org.jetbrains.research.codecocoon.transformer.identifiers.SynonymContext;
 import org.jetbrains.research.codecocoon.transformer.identifiers.VariableNameTransformer;
+import org.jetbrains.research.codecocoon.transformer.parser.SnippetParser;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.io.FileNotFoundException;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class CompositeTransformerTest {
@@ -162,7 +176,7 @@ public class CompositeTransformerTest {
 
     @Test
     public void testFourTransformers() {
-        SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class);
+        SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
         List<Transformer> transformers = List.of(
                 new VariableNameTransformer(mockSynonymGenerator),
                 new ForToWhileTransformer(),
@@ -209,6 +223,157 @@ public class CompositeTransformerTest {
         assertEquals(expectedSnippet, snippet);
     }
 
+    /**
+     * The composite parses and prints a snippet only once. This should give the same result as applying the
+     * transformers one by one, where every transformer parses and prints the snippet itself. The synonym generator
+     * depends on the context, to check that identifier transformers still see the code of the previous transformers.
+     * Comments are ignored, since printing and parsing again can attach a comment to a neighbouring node.
+     */
+    @Test
+    public void testSameResultAsSeparateTransformers() throws FileNotFoundException, URISyntaxException {
+        SynonymGenerator synonymGenerator = (name, context, type) -> name + withoutComments(context).length() % 7;
+        List<Transformer> transformers = List.of(
+                new ForToWhileTransformer(),
+                new VariableNameTransformer(synonymGenerator),
+                new NestElseIfTransformer(),
+                new ParameterNameTransformer(synonymGenerator),
+                new ReverseIfTransformer(),
+                new SwapRelationOperandsTransformer(),
+                new ExpandUnaryIncrementTransformer(),
+                new FunctionNameTransformer(synonymGenerator),
+                new SwapEqualsOperandsTransformer()
+        );
+        Transformer compositeTransformer = new CompositeTransformer(transformers);
+
+        String datasetPath = getClass().getClassLoader().getResource("defects4j-sf-updated.json").toURI().getPath();
+        for (Snippet snippet : SnippetIO.loadSnippets(datasetPath)) {
+            Snippet expected = new Snippet(snippet.getId(), snippet.getCode());
+            for (Transformer transformer : transformers) {
+                transformer.transform(expected);
+            }
+
+            compositeTransformer.transform(snippet);
+
+            assertEquals(expected, snippet);
+            assertEquals(expected.getTransformations(), snippet.getTransformations());
+        }
+    }
+
+    private String withoutComments(String code) {
+        return code.replaceAll("(?s)//[^\n]*|/\\*.*?\\*/|\\s", "");
+    }
+
+    @Test
+    public void testBatchedSynonyms() {
+        SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        List<Transformer> transformers = List.of(
+                new FunctionNameTransformer(mockSynonymGenerator),
+                new ForToWhileTransformer(),
+                new ParameterNameTransformer(mockSynonymGenerator),
+                new VariableNameTransformer(mockSynonymGenerator)
+        );
+        Transformer compositeTransformer = new CompositeTransformer(transformers, SnippetParser.DEFAULT, true);
+
+        String inputCode = """
+                public int sum(int[] values) {
+                  int total = 0;
+                  for (int i = 0; i < values.length; i++) {
+                    total += values[i];
+                  }
+                  return total;
+                }""";
+        String expectedCode = """
+                public int add(int[] numbers) {
+                  int aggregate = 0;
+                  int index = 0;
+                  while (index < numbers.length) {
+                    aggregate += numbers[index];
+                    index++;
+                  }
+                  return aggregate;
+                }""";
+        Snippet snippet = SnippetWrapper.wrap(inputCode);
+        Snippet expectedSnippet = SnippetWrapper.wrap(expectedCode);
+
+        List<Identifier> identifiers = List.of(
+                new Identifier("sum", "function"),
+                new Identifier("values", "parameter"),
+                new Identifier("total", "variable"),
+                new Identifier("i", "variable")
+        );
+        doReturn(Map.of(
+                new Identifier("sum", "function"), "add",
+                new Identifier("values", "parameter"), "numbers",
+                new Identifier("total", "variable"), "aggregate",
+                new Identifier("i", "variable"), "index"
+        )).when(mockSynonymGenerator).generateSynonymsFor(identifiers, inputCode);
+
+        compositeTransformer.transform(snippet);
+
+        assertEquals(expectedSnippet, snippet);
+        verify(mockSynonymGenerator).generateSynonymsFor(identifiers, inputCode);
+        verify(mockSynonymGenerator, never()).generateSynonymFor(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testOriginalSynonymContextIsOrderIndependent() {
+        String inputCode = """
+                public int sum(int[] values) {
+                  int total = 0;
+                  for (int i = 0; i < values.length; i++) {
+                    total += values[i];
+                  }
+                  return total;
+                }""";
+        SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        when(mockSynonymGenerator.generateSynonymFor(anyString(), anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(0) + "1");
+
+        Transformer renameFirst = new CompositeTransformer(List.of(
+                new VariableNameTransformer(mockSynonymGenerator, SynonymContext.ORIGINAL),
+                new ForToWhileTransformer()
+        ));
+        Transformer renameLast = new CompositeTransformer(List.of(
+                new ForToWhileTransformer(),
+                new VariableNameTransformer(mockSynonymGenerator, SynonymContext.ORIGINAL)
+        ));
+        Snippet snippet1 = SnippetWrapper.wrap(inputCode);
+        Snippet snippet2 = SnippetWrapper.wrap(inputCode);
+
+        renameFirst.transform(snippet1);
+        renameLast.transform(snippet2);
+
+        assertEquals(snippet1, snippet2);
+        verify(mockSynonymGenerator, times(2)).generateSynonymFor("total", inputCode, "variable");
+        verify(mockSynonymGenerator, times(2)).generateSynonymFor("i", inputCode, "variable");
+    }
+
+    @Test
+    public void testChangedSnippets() {
+        Transformer forToWhileTransformer = new ForToWhileTransformer();
+        Transformer nestElseIfTransformer = new NestElseIfTransformer();
+        Transformer compositeTransformer = new CompositeTransformer(List.of(forToWhileTransformer, nestElseIfTransformer));
+        String inputCode = """
+                public int test(int i) {
+                  if (i == 1) {
+                    return 1;
+                  }
+                  return i;
+                }""";
+        Snippet unchanged = SnippetWrapper.wrap(inputCode);
+        Snippet changed = SnippetWrapper.wrap("""
+                public void test() {
+                  for (int i = 0; i < 10; i++) {}
+                }""");
+
+        compositeTransformer.transform(unchanged);
+        compositeTransformer.transform(changed);
+
+        assertEquals(inputCode, unchanged.getCode());
+        assertEquals(1, compositeTransformer.getChangedSnippets());
+        assertEquals(1, forToWhileTransformer.getChangedSnippets());
+        assertEquals(0, nestElseIfTransformer.getChangedSnippets());
+    }
+
     @Test
     public void testEquals() {
         Transformer compositeTransformer1 = new CompositeTransformer(List.of(new ForToWhileTransformer()));
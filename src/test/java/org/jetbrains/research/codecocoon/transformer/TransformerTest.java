@@ -32,12 +32,85 @@ public class TransformerTest {
 
         for (Snippet snippet : snippets) {
             Snippet clone = snippet.clone();
-            transformer.transform(clone);
+            // Transformers that change nothing keep the original code, so print explicitly.
+            clone.setCode(transformer.parse(clone).toString());
 
             assertEquals(snippet, clone);
         }
     }
 
+    @Test
+    public void testUnchangedKeepsOriginalCode() {
+        String inputCode = """
+                public int test( int i ) {
+                  // Not printed again.
+                  return i+1;
+                }""";
+        Snippet snippet = SnippetWrapper.wrap(inputCode);
+        Transformer forToWhileTransformer = new ForToWhileTransformer();
+
+        forToWhileTransformer.transform(snippet);
+
+        assertEquals(inputCode, snippet.getCode());
+        assertEquals(0, forToWhileTransformer.getChangedSnippets());
+    }
+
+    @Test
+    public void testChangedSnippets() {
+        Transformer forToWhileTransformer = new ForToWhileTransformer();
+        Snippet loops = SnippetWrapper.wrap("""
+                public void test() {
+                  for (int i = 0; i < 10; i++) {
+                    for (int j = 0; j < 10; j++) {}
+                  }
+                }""");
+        Snippet noLoops = SnippetWrapper.wrap("""
+                public void test() {
+                  return;
+                }""");
+
+        forToWhileTransformer.transform(loops);
+        forToWhileTransformer.transform(noLoops);
+
+        assertEquals(1, forToWhileTransformer.getChangedSnippets());
+    }
+
+    /**
+     * Tests whether the transformers change none of the snippets in the dataset for which their precondition does not
+     * hold.
+     */
+    @Test
+    public void testPreconditions() throws FileNotFoundException, URISyntaxException {
+        String datasetPath = getClass().getClassLoader().getResource("defects4j-sf-updated.json").toURI().getPath();
+        List<Snippet> snippets = SnippetIO.loadSnippets(datasetPath);
+        List<Transformer> transformers = List.of(
+                new ForToWhileTransformer(),
+                new NestElseIfTransformer(),
+                new ReverseIfTransformer(),
+                new SwapRelationOperandsTransformer(),
+                new ExpandUnaryIncrementTransformer(),
+                new SwapEqualsOperandsTransformer()
+        );
+
+        for (Transformer transformer : transformers) {
+            for (Snippet snippet : snippets) {
+                if (transformer.isApplicableTo(snippet.getCode())) continue;
+                Snippet clone = snippet.clone();
+
+                assertFalse(transformer.apply(transformer.parse(clone), clone));
+            }
+        }
+    }
+
+    @Test
+    public void testNotApplicableIsNotParsed() {
+        Snippet snippet = SnippetWrapper.wrap("void");
+
+        new ForToWhileTransformer().transform(snippet);
+
+        assertEquals("void", snippet.getCode());
+    }
+
     @Test
     public void testEmpty() {
         assertThrows(IllegalArgumentException.class, () -> transformer.transform(SnippetWrapper.wrap("")));
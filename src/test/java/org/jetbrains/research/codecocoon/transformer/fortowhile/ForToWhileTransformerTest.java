@@ -112,6 +112,43 @@ public class ForToWhileTransformerTest {
         assertFalse(snippet.getTransformations().containsKey(Transformation.ForToWhile));
     }
 
+    @Test
+    public void testLabeledContinue() {
+        String inputCode = """
+                public int indexOf(int[] values, int[] pattern) {
+                  outer:
+                  for (int i = 0; i < values.length; i++) {
+                    for (int j = 0; j < pattern.length; j++) {
+                      if (values[i + j] != pattern[j]) {
+                        continue outer;
+                      }
+                    }
+                    return i;
+                  }
+                  return -1;
+                }""";
+        String expectedCode = """
+                public int indexOf(int[] values, int[] pattern) {
+                  outer:
+                  for (int i = 0; i < values.length; i++) {
+                    for (int j = 0; j < pattern.length; j++) {
+                      if (values[i + j] != pattern[j]) {
+                        continue outer;
+                      }
+                    }
+                    return i;
+                  }
+                  return -1;
+                }""";
+        Snippet snippet = SnippetWrapper.wrap(inputCode);
+        Snippet expectedSnippet = SnippetWrapper.wrap(expectedCode);
+
+        transformer.transform(snippet);
+
+        assertEquals(expectedSnippet, snippet);
+        assertFalse(snippet.getTransformations().containsKey(Transformation.ForToWhile));
+    }
+
     @Test
     public void testMultipleInitializations() {
         String inputCode = """
@@ -13,7 +13,7 @@ import static org.mockito.Mockito.*;
 
 public class FunctionNameTransformerTest {
 
-    SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class);
+    SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
     FunctionNameTransformer transformer = new FunctionNameTransformer(mockSynonymGenerator);
 
     @Test
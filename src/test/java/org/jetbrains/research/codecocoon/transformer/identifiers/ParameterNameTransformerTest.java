@@ -14,7 +14,7 @@ import static org.mockito.Mockito.when;
 
 public class ParameterNameTransformerTest {
 
-    SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class);
+    SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
     Transformer transformer = new ParameterNameTransformer(mockSynonymGenerator);
 
     @Test
@@ -8,13 +8,17 @@ import org.jetbrains.research.codecocoon.transformer.Transformer;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.List;
+
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class VariableNameTransformerTest {
 
-    SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class);
+    SynonymGenerator mockSynonymGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
     Transformer transformer = new VariableNameTransformer(mockSynonymGenerator);
 
     @Test
@@ -40,6 +44,29 @@ public class VariableNameTransformerTest {
         assertEquals(Integer.valueOf(1), snippet.getTransformations().get(Transformation.RenameVariables));
     }
 
+    @Test
+    public void testCollidingCandidateIsSkipped() {
+        String inputCode = """
+                public int test(int result) {
+                  int value = 1;
+                  return value + result;
+                }""";
+        String expectedCode = """
+                public int test(int result) {
+                  int outcome = 1;
+                  return outcome + result;
+                }""";
+        Snippet snippet = SnippetWrapper.wrap(inputCode);
+        Snippet expectedSnippet = SnippetWrapper.wrap(expectedCode);
+
+        doReturn(List.of("result", "void", "outcome", "answer")).when(mockSynonymGenerator).generateSynonymCandidatesFor("value", inputCode, "variable");
+
+        transformer.transform(snippet);
+
+        assertEquals(expectedSnippet, snippet);
+        verify(mockSynonymGenerator, never()).generateSynonymFor("value", inputCode, "variable");
+    }
+
     @Test
     public void testNested() {
         String inputCode = """
@@ -285,7 +312,7 @@ public class VariableNameTransformerTest {
 
     @Test
     public void testEquals() {
-        SynonymGenerator synonymGenerator = Mockito.mock(SynonymGenerator.class);
+        SynonymGenerator synonymGenerator = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
         Transformer variableNameTransformer1 = new VariableNameTransformer(synonymGenerator);
         Transformer variableNameTransformer2 = new VariableNameTransformer(synonymGenerator);
 
@@ -294,8 +321,8 @@ public class VariableNameTransformerTest {
 
     @Test
     public void testNotEquals() {
-        SynonymGenerator synonymGenerator1 = Mockito.mock(SynonymGenerator.class);
-        SynonymGenerator synonymGenerator2 = Mockito.mock(SynonymGenerator.class);
+        SynonymGenerator synonymGenerator1 = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
+        SynonymGenerator synonymGenerator2 = Mockito.mock(SynonymGenerator.class, Mockito.CALLS_REAL_METHODS);
         Transformer variableNameTransformer1 = new VariableNameTransformer(synonymGenerator1);
         Transformer variableNameTransformer2 = new VariableNameTransformer(synonymGenerator2);
 
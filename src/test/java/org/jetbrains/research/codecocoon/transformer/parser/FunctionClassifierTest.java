@@ -0,0 +1,84 @@
+package org.jetbrains.research.codecocoon.transformer.parser;
+
+import com.github.javaparser.JavaParser;
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.io.SnippetIO;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+public class FunctionClassifierTest {
+
+    @Test
+    public void testMethod() {
+        assertEquals(Optional.of(FunctionKind.METHOD), FunctionClassifier.classify("public int test() {\n  return 1;\n}"));
+    }
+
+    @Test
+    public void testConstructor() {
+        assertEquals(Optional.of(FunctionKind.CONSTRUCTOR), FunctionClassifier.classify("public Test(int value) {\n  this.value = value;\n}"));
+    }
+
+    @Test
+    public void testPackagePrivateConstructor() {
+        assertEquals(Optional.of(FunctionKind.CONSTRUCTOR), FunctionClassifier.classify("Test() {}"));
+    }
+
+    @Test
+    public void testGenericMethod() {
+        assertEquals(Optional.of(FunctionKind.METHOD), FunctionClassifier.classify("public static <T extends Comparable<T>> List<T> sort(List<T> values) {}"));
+    }
+
+    @Test
+    public void testGenericConstructor() {
+        assertEquals(Optional.of(FunctionKind.CONSTRUCTOR), FunctionClassifier.classify("public <T> Test(T value) {}"));
+    }
+
+    @Test
+    public void testArrayAndQualifiedReturnType() {
+        assertEquals(Optional.of(FunctionKind.METHOD), FunctionClassifier.classify("java.lang.String[] names() {}"));
+    }
+
+    @Test
+    public void testAnnotationsAndComments() {
+        String code = """
+                /**
+                 * Creates a new instance (see Test(int)).
+                 */
+                @SuppressWarnings(value = {"unchecked", "rawtypes("})
+                // Constructor (deprecated)
+                @Deprecated public Test() {
+                }""";
+
+        assertEquals(Optional.of(FunctionKind.CONSTRUCTOR), FunctionClassifier.classify(code));
+    }
+
+    @Test
+    public void testUnknown() {
+        assertEquals(Optional.empty(), FunctionClassifier.classify("void"));
+        assertEquals(Optional.empty(), FunctionClassifier.classify(""));
+        assertEquals(Optional.empty(), FunctionClassifier.classify("int value = test();"));
+    }
+
+    /**
+     * The classification should agree with what the parser accepts, for every snippet in the dataset.
+     */
+    @Test
+    public void testSameAsParser() throws FileNotFoundException, URISyntaxException {
+        String datasetPath = getClass().getClassLoader().getResource("defects4j-sf-updated.json").toURI().getPath();
+        List<Snippet> snippets = SnippetIO.loadSnippets(datasetPath);
+        JavaParser parser = new JavaParser();
+
+        for (Snippet snippet : snippets) {
+            boolean isMethod = parser.parseMethodDeclaration(snippet.getCode()).isSuccessful();
+            FunctionKind expected = isMethod ? FunctionKind.METHOD : FunctionKind.CONSTRUCTOR;
+
+            assertEquals(snippet.getId(), Optional.of(expected), FunctionClassifier.classify(snippet.getCode()));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.jetbrains.research.codecocoon.transformer.parser;
+
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.jetbrains.research.codecocoon.Snippet;
+import org.jetbrains.research.codecocoon.io.SnippetIO;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SnippetParserTest {
+
+    SnippetParser parser = new SnippetParser(ParserProfile.LEAN);
+
+    @Test
+    public void testMethod() {
+        CallableDeclaration<?> function = parser.parse("public int test() {\n  return 1;\n}");
+
+        assertTrue(function instanceof MethodDeclaration);
+    }
+
+    @Test
+    public void testConstructor() {
+        CallableDeclaration<?> function = parser.parse("public Test() {\n  this.value = 1;\n}");
+
+        assertTrue(function instanceof ConstructorDeclaration);
+    }
+
+    @Test
+    public void testRemembersFunctionKind() {
+        Snippet snippet = new Snippet("id", "public Test() {\n  this.value = 1;\n}");
+
+        parser.parse(snippet);
+
+        assertEquals(FunctionKind.CONSTRUCTOR, snippet.getFunctionKind());
+    }
+
+    @Test
+    public void testWrongFunctionKind() {
+        Snippet method = new Snippet("method", "public int test() {\n  return 1;\n}");
+        Snippet constructor = new Snippet("constructor", "public Test() {\n  this.value = 1;\n}");
+        method.setFunctionKind(FunctionKind.CONSTRUCTOR);
+        constructor.setFunctionKind(FunctionKind.METHOD);
+
+        assertTrue(parser.parse(method) instanceof MethodDeclaration);
+        assertTrue(parser.parse(constructor) instanceof ConstructorDeclaration);
+        assertEquals(FunctionKind.METHOD, method.getFunctionKind());
+        assertEquals(FunctionKind.CONSTRUCTOR, constructor.getFunctionKind());
+    }
+
+    @Test
+    public void testIllegal() {
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("void"));
+    }
+
+    /**
+     * The lean profile turns off parser features, but should print every snippet exactly like the default profile.
+     */
+    @Test
+    public void testLeanSameAsDefault() throws FileNotFoundException, URISyntaxException {
+        String datasetPath = getClass().getClassLoader().getResource("defects4j-sf-updated.json").toURI().getPath();
+        List<Snippet> snippets = SnippetIO.loadSnippets(datasetPath);
+
+        for (Snippet snippet : snippets) {
+            String expected = SnippetParser.DEFAULT.parse(snippet.getCode()).toString();
+            String actual = parser.parse(snippet.getCode()).toString();
+
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testLeanKeepsLineSeparator() {
+        String code = "public int test() {\r\n  int value = 1;\r\n  return value;\r\n}";
+
+        String expected = SnippetParser.DEFAULT.parse(code).toString();
+        String actual = parser.parse(code).toString();
+
+        assertEquals(expected, actual);
+        assertTrue(actual.contains("\r\n"));
+    }
+
+    @Test
+    public void testParserPerThread() throws InterruptedException {
+        String code = "public int test() {\n  return 1;\n}";
+        String expected = parser.parse(code).toString();
+        String[] actual = new String[1];
+
+        Thread thread = new Thread(() -> actual[0] = parser.parse(code).toString());
+        thread.start();
+        thread.join();
+
+        assertEquals(expected, actual[0]);
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(new SnippetParser(ParserProfile.LEAN), parser);
+    }
+
+    @Test
+    public void testNotEquals() {
+        assertNotEquals(SnippetParser.DEFAULT, parser);
+    }
+}